@@ -15,6 +15,8 @@ import org.springframework.context.annotation.Import;
 import org.springframework.hateoas.MediaTypes;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
 import org.springframework.validation.beanvalidation.MethodValidationPostProcessor;
 import org.springframework.web.servlet.config.annotation.ContentNegotiationConfigurer;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
@@ -25,6 +27,7 @@ import javax.annotation.PostConstruct;
 import java.util.Collection;
 
 @Configuration
+@EnableScheduling
 @Import(HalConfiguration.class)
 public class ApiConfiguration extends WebMvcConfigurerAdapter {
 
@@ -62,9 +65,16 @@ public class ApiConfiguration extends WebMvcConfigurerAdapter {
         registry.addWebRequestInterceptor(channelInterceptor());
     }
 
+    @Bean
+    public LocalValidatorFactoryBean validator() {
+        return new LocalValidatorFactoryBean();
+    }
+
     @Bean
     public MethodValidationPostProcessor methodValidationPostProcessor() {
-        return new MethodValidationPostProcessor();
+        final MethodValidationPostProcessor methodValidationPostProcessor = new MethodValidationPostProcessor();
+        methodValidationPostProcessor.setValidator(validator());
+        return methodValidationPostProcessor;
     }
 
     @Bean
@@ -6,17 +6,18 @@ import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
+import javaslang.control.Try;
 import org.apache.commons.lang3.tuple.Pair;
 import org.broadleafcommerce.common.service.GenericEntityService;
 import org.broadleafcommerce.core.catalog.domain.Category;
 import org.broadleafcommerce.core.catalog.domain.CategoryProductXref;
-import org.broadleafcommerce.core.catalog.domain.CategoryProductXrefImpl;
 import org.broadleafcommerce.core.catalog.domain.CategoryXref;
 import org.broadleafcommerce.core.catalog.domain.CategoryXrefImpl;
 import org.broadleafcommerce.core.catalog.domain.Product;
 import org.broadleafcommerce.core.catalog.service.CatalogService;
 import org.hibernate.validator.constraints.NotEmpty;
 import org.hibernate.validator.constraints.URL;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.hateoas.MediaTypes;
 import org.springframework.hateoas.Resources;
 import org.springframework.http.HttpStatus;
@@ -35,23 +36,32 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import pl.touk.widerest.api.common.CatalogETags;
 import pl.touk.widerest.api.common.CatalogUtils;
 import pl.touk.widerest.api.common.ResourceNotFoundException;
 import pl.touk.widerest.api.products.ProductConverter;
 import pl.touk.widerest.api.products.ProductDto;
+import pl.touk.widerest.api.products.ProductServiceProxy;
+import pl.touk.widerest.api.products.ProductSort;
 import pl.touk.widerest.security.oauth2.ResourceServerConfig;
 import springfox.documentation.annotations.ApiIgnore;
 
 import javax.annotation.Resource;
 import javax.validation.Valid;
+import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.Queue;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -66,6 +76,8 @@ public class CategoryController {
     private static final ResponseEntity<Void> CONFLICT = ResponseEntity.status(HttpStatus.CONFLICT).build();
     private static final ResponseEntity<Void> CREATED = ResponseEntity.status(HttpStatus.CREATED).build();
 
+    public static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+
     @Resource(name="blCatalogService")
     protected CatalogService catalogService;
 
@@ -78,6 +90,21 @@ public class CategoryController {
     @Resource
     protected ProductConverter productConverter;
 
+    @Resource
+    protected ProductServiceProxy productServiceProxy;
+
+    @Resource
+    protected CategoryServiceProxy categoryServiceProxy;
+
+    @Resource
+    protected CatalogETags catalogETags;
+
+    @Resource
+    protected CategoryTree categoryTree;
+
+    @Value("${widerest.categories.cache-control:no-cache}")
+    protected String cacheControl;
+
     @Transactional
     @PreAuthorize("permitAll")
     @RequestMapping(value = "/categories", method = RequestMethod.GET)
@@ -92,20 +119,27 @@ public class CategoryController {
     public Resources<CategoryDto> readAllCategories(
             @ApiIgnore @AuthenticationPrincipal UserDetails userDetails,
             @ApiParam(value = "Level in the categories hierarchy tree", defaultValue = "false")
-            @RequestParam(value = "flat", required = false, defaultValue = "false") boolean flat
+            @RequestParam(value = "flat", required = false, defaultValue = "false") boolean flat,
+            @ApiParam(value = "Return the categories at this level of the hierarchy tree, 0 being the root categories " +
+                    "(with their subcategories embedded unless flat)")
+            @RequestParam(value = "depth", required = false) Integer depth
     ) {
 
-        final List<CategoryDto> categoriesToReturn =
-                (flat ? catalogService.findAllCategories() : catalogService.findAllParentCategories()).stream()
-                        .filter(new Predicate<Category>() {
-                            @Override
-                            public boolean test(Category category) {
-                                return category.isActive();
-                            }
-                        })
-                        .filter(category -> flat || category.getAllParentCategoryXrefs().size() == 0)
-                        .map(category -> categoryConverter.createDto(category, !flat, true))
-                        .collect(Collectors.toList());
+        if (depth != null || !flat) {
+            final Instant now = Instant.now();
+            final CategoryTree.Snapshot tree = categoryTree.snapshot();
+            final Predicate<CategoryNode> visible = CategoryTree.shouldNodeBeVisible(now);
+
+            return new Resources<>(tree.getCategoriesAtLevel(depth != null ? depth : 0).stream()
+                    .filter(node -> node.isActive(now))
+                    .map(node -> categoryConverter.createDto(tree, node, visible, !flat, true))
+                    .collect(Collectors.toList()));
+        }
+
+        final List<CategoryDto> categoriesToReturn = catalogService.findAllCategories().stream()
+                .filter(Category::isActive)
+                .map(category -> categoryConverter.createDto(category, false, true))
+                .collect(Collectors.toList());
 
         return new Resources<>(categoriesToReturn);
     }
@@ -155,15 +189,19 @@ public class CategoryController {
             @ApiParam(value = "ID of a specific category", required = true)
             @PathVariable(value="categoryId") final Long categoryId,
             @RequestParam(value = "embed", defaultValue = "false") Boolean embed,
-            @RequestParam(value = "link", defaultValue = "true") Boolean link
+            @RequestParam(value = "link", defaultValue = "true") Boolean link,
+            @ApiIgnore ServletWebRequest request
     ) {
-
-        final CategoryDto categoryToReturnDto = Optional.ofNullable(catalogService.findCategoryById(categoryId))
+        final String eTag = embed ? null : catalogETags.currentETag();
+        final Category category = Optional.ofNullable(catalogService.findCategoryById(categoryId))
                 .filter(((Predicate<Category>) Category::isActive).or(x -> false))
-                .map(category -> categoryConverter.createDto(category, embed, link))
                 .orElseThrow(() -> new ResourceNotFoundException("Category with ID: " + categoryId + " does not exist"));
 
-        return ResponseEntity.ok(categoryToReturnDto);
+        if (catalogETags.checkNotModified(request, eTag, cacheControl)) {
+            return null;
+        }
+
+        return ResponseEntity.ok(categoryConverter.createDto(category, embed, link));
     }
 
     @Transactional
@@ -240,10 +278,29 @@ public class CategoryController {
             @RequestParam(value = "limit", required = false) Integer limit,
             @ApiParam(value = "Offset which to start returning subcategories from")
             @RequestParam(value = "offset", required = false) Integer offset,
+            @ApiParam(value = "Return all descendants at most this many levels below the category, instead of its direct subcategories")
+            @RequestParam(value = "depth", required = false) Integer depth,
             @RequestParam(value = "embed", defaultValue = "false") Boolean embed,
             @RequestParam(value = "link", defaultValue = "true") Boolean link
     ) {
 
+        if (depth != null) {
+            final CategoryTree.Snapshot tree = categoryTree.snapshot();
+            final Predicate<CategoryNode> visible = CategoryTree.shouldNodeBeVisible(Instant.now());
+
+            final CategoryNode node = tree.getNode(categoryId)
+                    .filter(visible)
+                    .orElseThrow(() -> new ResourceNotFoundException("Category with ID: " + categoryId + " does not exist"));
+
+            final List<CategoryNode> descendants = tree.getDescendants(node, depth).stream()
+                    .filter(visible)
+                    .collect(Collectors.toList());
+
+            return new Resources<>(CatalogUtils.getSublistForOffset(descendants, offset != null ? offset : 0, limit != null ? limit : 0).stream()
+                    .map(descendant -> categoryConverter.createDto(tree, descendant, visible, embed, link))
+                    .collect(Collectors.toList()));
+        }
+
         final Category category = Optional.ofNullable(catalogService.findCategoryById(categoryId))
                 .filter(CatalogUtils.shouldCategoryBeVisible)
                 .orElseThrow(() -> new ResourceNotFoundException("Category with ID: " + categoryId + " does not exist"));
@@ -355,27 +412,44 @@ public class CategoryController {
     @RequestMapping(value = "/categories/{categoryId}/products", method = RequestMethod.GET)
     @ApiOperation(
             value = "Get all products in a category",
-            notes = "Gets a list of all products belonging to a specified category",
+            notes = "Gets a page of products belonging to a specified category. The total number of matching products " +
+                    "is returned in the X-Total-Count header",
             response = ProductDto.class,
             responseContainer = "List"
     )
     @ApiResponses({
             @ApiResponse(code = 200, message = "Successful retrieval of all products in a given category", responseContainer = "List"),
+            @ApiResponse(code = 400, message = "Invalid sort order"),
             @ApiResponse(code = 404, message = "The specified category does not exist")
     })
-    public Resources<ProductDto> readProductsFromCategory(
+    public ResponseEntity<Resources<ProductDto>> readProductsFromCategory(
             @ApiParam(value = "ID of a specific category", required = true)
             @PathVariable(value="categoryId") final Long categoryId,
             @RequestParam(value = "embed", defaultValue = "false") Boolean embed,
-            @RequestParam(value = "link", defaultValue = "true") Boolean link
+            @RequestParam(value = "link", defaultValue = "true") Boolean link,
+            @ApiParam(value = "Amount of products to be returned")
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @ApiParam(value = "Offset which to start returning products from")
+            @RequestParam(value = "offset", required = false) Integer offset,
+            @ApiParam(value = "Sort order: id, name or price, optionally followed by ',asc' or ',desc'")
+            @RequestParam(value = "sort", required = false) String sort,
+            @ApiParam(value = "Lowest price of a returned product")
+            @RequestParam(value = "minPrice", required = false) BigDecimal minPrice,
+            @ApiParam(value = "Highest price of a returned product")
+            @RequestParam(value = "maxPrice", required = false) BigDecimal maxPrice
     ) {
+        final ProductSort productSort = ProductSort.parse(sort);
 
-        return new Resources<>(
-                getProductsFromCategoryId(categoryId).stream()
-                .filter(CatalogUtils.shouldProductBeVisible)
-                .map(product -> productConverter.createDto(product, embed, link))
-                .collect(Collectors.toList())
-        );
+        Optional.ofNullable(catalogService.findCategoryById(categoryId))
+                .filter(CatalogUtils.shouldCategoryBeVisible)
+                .orElseThrow(() -> new ResourceNotFoundException("Category with ID: " + categoryId + " does not exist"));
+
+        final List<Product> products = productServiceProxy.findVisibleProductsInCategory(
+                categoryId, minPrice, maxPrice, productSort, limit != null ? limit : 0, offset != null ? offset : 0);
+
+        return ResponseEntity.ok()
+                .header(TOTAL_COUNT_HEADER, Long.toString(productServiceProxy.countVisibleProductsInCategory(categoryId, minPrice, maxPrice)))
+                .body(new Resources<>(productConverter.createDtos(products, embed, link)));
     }
 
     /* (mst) This endpoint inserts only a reference to the product (so it has to exist)
@@ -384,7 +458,7 @@ public class CategoryController {
      */
     @Transactional
     @PreAuthorize("hasAuthority('PERMISSION_ALL_CATEGORY')")
-    @RequestMapping(value = "/categories/{categoryId}/products", method = RequestMethod.POST)
+    @RequestMapping(value = "/categories/{categoryId}/products", method = RequestMethod.POST, params = "href")
     @ApiOperation(
             value = "Insert existing product into category",
             notes = "Inserts existing product into category. It actually only updates few references therefore" +
@@ -413,18 +487,70 @@ public class CategoryController {
                 .filter(CatalogUtils.shouldProductBeVisible)
                 .orElseThrow(() -> new ResourceNotFoundException("Product with ID: " + hrefProductId + " does not exist"));
 
-        final CategoryProductXref productToAddXref = new CategoryProductXrefImpl();
-        productToAddXref.setProduct(productToAdd);
-        productToAddXref.setCategory(categoryEntity);
-
-        if(!categoryEntity.getAllProductXrefs().contains(productToAddXref)) {
-            categoryEntity.getAllProductXrefs().add(productToAddXref);
-            catalogService.saveCategory(categoryEntity);
-            /* TODO: (mst) add URI */
-            return CREATED;
-        } else {
+        if (categoryServiceProxy.findProductXref(categoryId, hrefProductId).isPresent()) {
             return CONFLICT;
         }
+
+        categoryServiceProxy.addProduct(categoryEntity, productToAdd);
+        /* TODO: (mst) add URI */
+        return CREATED;
+    }
+
+    @Transactional
+    @PreAuthorize("hasAuthority('PERMISSION_ALL_CATEGORY')")
+    @RequestMapping(value = "/categories/{categoryId}/products", method = RequestMethod.POST, params = "!href")
+    @ApiOperation(
+            value = "Insert many existing products into category",
+            notes = "Inserts a list of existing products into category, in a single transaction. Returns a result for every " +
+                    "product link, in the order of the request: 201 when inserted, 409 when the category already contains " +
+                    "the product or 404 when it does not exist",
+            response = ProductReferenceResultDto.class,
+            responseContainer = "List")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Product links processed, see per-item results", response = ProductReferenceResultDto.class, responseContainer = "List"),
+            @ApiResponse(code = 404, message = "The specified category does not exist")
+    })
+    public ResponseEntity<List<ProductReferenceResultDto>> insertProductsIntoCategory(
+            @ApiParam(value = "ID of a specific category", required = true)
+            @PathVariable(value="categoryId") Long categoryId,
+            @ApiParam(value = "Links to the products", required = true)
+            @RequestBody final List<String> hrefs) {
+
+        final Category categoryEntity = Optional.ofNullable(catalogService.findCategoryById(categoryId))
+                .filter(CatalogUtils.shouldCategoryBeVisible)
+                .orElseThrow(() -> new ResourceNotFoundException("Category with ID: " + categoryId + " does not exist"));
+
+        final List<Long> productIds = hrefs.stream()
+                .map(href -> Try.of(() -> CatalogUtils.getIdFromUrl(href)).getOrElse((Long) null))
+                .collect(Collectors.toList());
+
+        final Set<Long> requestedIds = productIds.stream().filter(Objects::nonNull).collect(Collectors.toSet());
+
+        /* Two queries for the whole batch, whatever the size of the category */
+        final Map<Long, Product> products = categoryServiceProxy.findProductsByIds(requestedIds).stream()
+                .filter(CatalogUtils.shouldProductBeVisible)
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        final Set<Long> productIdsInCategory = new HashSet<>(categoryServiceProxy.findProductIdsInCategory(categoryId, products.keySet()));
+
+        final List<ProductReferenceResultDto> results = new ArrayList<>();
+        for (int i = 0; i < hrefs.size(); i++) {
+            final Long productId = productIds.get(i);
+            final ProductReferenceResultDto.ProductReferenceResultDtoBuilder result = ProductReferenceResultDto.builder()
+                    .index(i)
+                    .href(hrefs.get(i));
+
+            if (productId == null || !products.containsKey(productId)) {
+                result.status(HttpStatus.NOT_FOUND.value()).errors(Collections.singletonList("Product " + hrefs.get(i) + " does not exist"));
+            } else if (!productIdsInCategory.add(productId)) {
+                result.status(HttpStatus.CONFLICT.value()).errors(Collections.singletonList("Category already contains product " + hrefs.get(i)));
+            } else {
+                categoryServiceProxy.addProduct(categoryEntity, products.get(productId));
+                result.status(HttpStatus.CREATED.value());
+            }
+            results.add(result.build());
+        }
+
+        return ResponseEntity.ok(results);
     }
 
     @Transactional
@@ -448,30 +574,16 @@ public class CategoryController {
 
         long hrefProductId = CatalogUtils.getIdFromUrl(href);
 
-    	/* (mst) Ok, here we do NOT remove the product completely from catalog -> this is the job of the ProductController! */
-        getProductsFromCategoryId(categoryId).stream()
-                .filter(CatalogUtils.shouldProductBeVisible)
-                .filter(x -> x.getId() == hrefProductId)
-                .findAny()
-                .orElseThrow(() -> new ResourceNotFoundException("Product with ID: " + hrefProductId + " does not exist in category with ID: " + categoryId));
-
-
         Optional.ofNullable(catalogService.findCategoryById(categoryId))
                 .filter(CatalogUtils.shouldCategoryBeVisible)
-                .map(e -> {
-                    CategoryProductXref xref = e.getAllProductXrefs().stream()
-                            .filter(x -> x.getProduct().getId() == hrefProductId)
-                            .findAny()
-                            .orElseThrow(() -> new ResourceNotFoundException("(Internal) Product with ID: " + hrefProductId + " not found on the list of references for category with ID: " + categoryId));
-                    return Pair.of(e, xref);
-                })
-                .map(e -> {
-                    e.getKey().getAllProductXrefs().remove(e.getValue());
-                    return e.getKey();
-                })
-                .map(catalogService::saveCategory)
                 .orElseThrow(() -> new ResourceNotFoundException("Category with ID: " + categoryId + " does not exist"));
 
+    	/* (mst) Ok, here we do NOT remove the product completely from catalog -> this is the job of the ProductController! */
+        final CategoryProductXref xref = categoryServiceProxy.findProductXref(categoryId, hrefProductId)
+                .filter(x -> CatalogUtils.shouldProductBeVisible.test(x.getProduct()))
+                .orElseThrow(() -> new ResourceNotFoundException("Product with ID: " + hrefProductId + " does not exist in category with ID: " + categoryId));
+
+        categoryServiceProxy.removeProductXref(xref);
 
         return NO_CONTENT;
 
@@ -479,67 +591,9 @@ public class CategoryController {
 
     /* ------------------------------- HELPER METHODS ------------------------------- */
 
-    private List<Product> getProductsFromCategoryId(final long categoryId) throws ResourceNotFoundException {
-
-        return Optional.ofNullable(catalogService.findCategoryById(categoryId))
-                .filter(CatalogUtils.shouldCategoryBeVisible)
-                .orElseThrow(() -> new ResourceNotFoundException("Category with ID: " + categoryId + " does not exist"))
-                .getAllProductXrefs().stream()
-                .map(CategoryProductXref::getProduct)
-                .collect(Collectors.toList());
-    }
-
-    public static List<Category> getCategoriesAtLevel(final List<Category> parentCategories, final int level) {
-
-        if(level < 0 || parentCategories.size() <= 0) {
-            return Collections.emptyList();
-        }
-
-        if(level == 0) {
-            return parentCategories;
-        }
-
-        final List<Category> levelCategories = new ArrayList<>();
-
-        /* (mst) BFS-type search. We maintain two queues though,
-                 to be able to break easily if we reach the
-                 required level.
-         */
-
-        Queue<Category> activeCategories = new LinkedList<>();
-        Queue<Category> inactiveCategories = new LinkedList<>();
-        int currentDepth;
-
-        for(Category rootCategory : parentCategories) {
-
-            currentDepth = 0;
-
-            activeCategories.add(rootCategory);
-
-            while(!activeCategories.isEmpty()) {
-                while(!activeCategories.isEmpty()) {
-                    final Category c = activeCategories.remove();
-
-                    for (CategoryXref children : c.getAllChildCategoryXrefs()) {
-                        inactiveCategories.add(children.getSubCategory());
-                    }
-                }
-
-                currentDepth++;
-
-                if(currentDepth >= level) {
-                    levelCategories.addAll(inactiveCategories);
-                    activeCategories.clear();
-                } else {
-                    activeCategories.clear();
-                    activeCategories.addAll(inactiveCategories);
-                }
-
-                inactiveCategories.clear();
-            }
-        }
-
-        return levelCategories;
+    /* Served from the category tree snapshot, level 0 being the root categories */
+    public List<CategoryNode> getCategoriesAtLevel(final int level) {
+        return categoryTree.snapshot().getCategoriesAtLevel(level);
     }
 
 }
@@ -10,37 +10,43 @@ import org.broadleafcommerce.core.catalog.domain.CategoryMediaXrefImpl;
 import org.broadleafcommerce.core.catalog.domain.CategoryXref;
 import org.broadleafcommerce.core.catalog.service.CatalogService;
 import org.broadleafcommerce.core.inventory.service.type.InventoryType;
+import org.broadleafcommerce.core.order.service.type.FulfillmentType;
 import org.springframework.hateoas.Link;
-import org.springframework.hateoas.mvc.ControllerLinkBuilder;
 import org.springframework.stereotype.Component;
 import org.springframework.util.CollectionUtils;
 import pl.touk.widerest.api.Converter;
 import pl.touk.widerest.api.common.CatalogUtils;
 import pl.touk.widerest.api.common.MediaConverter;
+import pl.touk.widerest.api.common.MediaDto;
 import pl.touk.widerest.api.orders.fulfillments.FulfillmentOptionsMapConverter;
 import pl.touk.widerest.api.orders.fulfillments.FulfilmentServiceProxy;
 import pl.touk.widerest.hal.EmbeddedResource;
+import pl.touk.widerest.hal.LinkTemplate;
 
 import javax.annotation.Resource;
 import java.time.Instant;
 import java.time.ZonedDateTime;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.function.Function;
+import java.util.function.Predicate;
 
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
-import static org.springframework.hateoas.mvc.ControllerLinkBuilder.linkTo;
-import static org.springframework.hateoas.mvc.ControllerLinkBuilder.methodOn;
 import static pl.touk.widerest.api.common.CatalogUtils.shouldCategoryBeVisible;
 import static pl.touk.widerest.api.common.CatalogUtils.valueExtractor;
+import static pl.touk.widerest.hal.LinkTemplates.linkTemplate;
 
 @Component
 public class CategoryConverter implements Converter<Category, CategoryDto> {
 
+    private static final LinkTemplate CATEGORY_LINK = linkTemplate(CategoryController.class, "readOneCategoryById");
+    private static final LinkTemplate PRODUCTS_LINK = linkTemplate(CategoryController.class, "readProductsFromCategory");
+
     @Resource
     protected MediaConverter mediaConverter;
 
@@ -77,16 +83,16 @@ public class CategoryConverter implements Converter<Category, CategoryDto> {
                 .url(entity.getUrl())
                 .build();
 
-        dto.add(ControllerLinkBuilder.linkTo(methodOn(CategoryController.class).readOneCategoryById(null, entity.getId(), null, null)).withSelfRel());
+        dto.add(CATEGORY_LINK.linkTo(entity.getId()).withSelfRel());
 
         if (link) {
 
-            dto.add(linkTo(methodOn(CategoryController.class).readProductsFromCategory(entity.getId(), null, null)).withRel("products"));
+            dto.add(PRODUCTS_LINK.linkTo(entity.getId()).withRel("products"));
 
             final List<Link> subcategoriesLinks = Optional.ofNullable(entity.getAllChildCategoryXrefs())
                     .orElse(Collections.emptyList()).stream()
                     .map(CategoryXref::getSubCategory)
-                    .map(x -> linkTo(methodOn(CategoryController.class).readOneCategoryById(null, x.getId(), null, null)).withRel("subcategories"))
+                    .map(x -> CATEGORY_LINK.linkTo(x.getId()).withRel("subcategories"))
                     .collect(toList());
 
             dto.add(subcategoriesLinks);
@@ -94,7 +100,7 @@ public class CategoryConverter implements Converter<Category, CategoryDto> {
             final List<Link> parentCategoriesLinks = Optional.ofNullable(entity.getAllParentCategoryXrefs())
                     .orElse(Collections.emptyList()).stream()
                     .map(CategoryXref::getCategory)
-                    .map(x -> linkTo(methodOn(CategoryController.class).readOneCategoryById(null, x.getId(), null, null)).withRel("parentcategories"))
+                    .map(x -> CATEGORY_LINK.linkTo(x.getId()).withRel("parentcategories"))
                     .collect(toList());
 
             dto.add(parentCategoriesLinks);
@@ -112,18 +118,79 @@ public class CategoryConverter implements Converter<Category, CategoryDto> {
                 dto.add(new EmbeddedResource("subcategories", subcategoryDtos));
             }
 
-            dto.add(new EmbeddedResource(
-                    "fulfillmentOptions",
-                    Try.of(() -> fulfilmentServiceProxy.readFulfillmentOptionsWithPricesAvailableByFulfillmentType(entity.getFulfillmentType()))
-                            .map(fulfillmentOptionsMapConverter::createDto)
-                            .get()
-            ));
+            dto.add(fulfillmentOptions(entity.getFulfillmentType()));
 
         }
 
         return dto;
     }
 
+    /*
+        Same representation as createDto(entity, embed, link), rendered from the category tree snapshot instead
+        of the entity - only the fulfillment options (cached by FulfilmentServiceProxy) are not taken from the snapshot
+     */
+    public CategoryDto createDto(final CategoryTree.Snapshot tree, final CategoryNode node, final Predicate<CategoryNode> visible,
+                                 final boolean embed, final boolean link) {
+
+        final CategoryDto dto = CategoryDto.builder()
+                .name(node.getName())
+                .description(node.getDescription())
+                .longDescription(node.getLongDescription())
+                .productsAvailability(node.getProductsAvailability())
+                .attributes(new HashMap<>(node.getAttributes()))
+                .media(node.getMedia().entrySet().stream()
+                        .collect(toMap(Map.Entry::getKey, e -> copyOf(e.getValue()))))
+                .url(node.getUrl())
+                .build();
+
+        dto.add(CATEGORY_LINK.linkTo(node.getId()).withSelfRel());
+
+        if (link) {
+            dto.add(PRODUCTS_LINK.linkTo(node.getId()).withRel("products"));
+
+            dto.add(node.getChildIds().stream()
+                    .map(childId -> CATEGORY_LINK.linkTo(childId).withRel("subcategories"))
+                    .collect(toList()));
+
+            dto.add(tree.getParentIds(node).stream()
+                    .map(parentId -> CATEGORY_LINK.linkTo(parentId).withRel("parentcategories"))
+                    .collect(toList()));
+        }
+
+        if (embed) {
+            final List<CategoryDto> subcategoryDtos = tree.getChildren(node).stream()
+                    .filter(visible)
+                    .map(subcategory -> createDto(tree, subcategory, visible, true, link))
+                    .collect(toList());
+
+            if (!CollectionUtils.isEmpty(subcategoryDtos)) {
+                dto.add(new EmbeddedResource("subcategories", subcategoryDtos));
+            }
+
+            dto.add(fulfillmentOptions(node.getFulfillmentType()));
+        }
+
+        return dto;
+    }
+
+    private EmbeddedResource fulfillmentOptions(final FulfillmentType fulfillmentType) {
+        return new EmbeddedResource(
+                "fulfillmentOptions",
+                Try.of(() -> fulfilmentServiceProxy.readFulfillmentOptionsWithPricesAvailableByFulfillmentType(fulfillmentType))
+                        .map(fulfillmentOptionsMapConverter::createDto)
+                        .get()
+        );
+    }
+
+    private static MediaDto copyOf(final MediaDto media) {
+        return MediaDto.builder()
+                .title(media.getTitle())
+                .url(media.getUrl())
+                .altText(media.getAltText())
+                .tags(media.getTags())
+                .build();
+    }
+
     @Override
     public Category createEntity(final CategoryDto dto) {
         return updateEntity(catalogService.createCategory(), dto);
@@ -0,0 +1,49 @@
+package pl.touk.widerest.api.categories;
+
+import lombok.Builder;
+import lombok.Value;
+import org.broadleafcommerce.core.order.service.type.FulfillmentType;
+import pl.touk.widerest.api.common.MediaDto;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/* Immutable copy of everything a category contributes to the category tree, see CategoryTree */
+@Value
+@Builder
+public class CategoryNode {
+
+    private Long id;
+
+    private String name;
+
+    private String description;
+
+    private String longDescription;
+
+    private String productsAvailability;
+
+    private Map<String, String> attributes;
+
+    private Map<String, MediaDto> media;
+
+    private String url;
+
+    private FulfillmentType fulfillmentType;
+
+    private Instant activeStartDate;
+
+    private Instant activeEndDate;
+
+    private boolean archived;
+
+    private List<Long> childIds;
+
+    /* Same rules as Category.isActive() */
+    public boolean isActive(final Instant now) {
+        return !archived
+                && activeStartDate != null && !activeStartDate.isAfter(now)
+                && (activeEndDate == null || !activeEndDate.isBefore(now));
+    }
+}
@@ -0,0 +1,111 @@
+package pl.touk.widerest.api.categories;
+
+import org.broadleafcommerce.core.catalog.domain.Category;
+import org.broadleafcommerce.core.catalog.domain.CategoryImpl;
+import org.broadleafcommerce.core.catalog.domain.CategoryProductXref;
+import org.broadleafcommerce.core.catalog.domain.CategoryProductXrefImpl;
+import org.broadleafcommerce.core.catalog.domain.Product;
+import org.broadleafcommerce.core.catalog.domain.ProductImpl;
+import org.hibernate.Cache;
+import org.hibernate.ejb.HibernateEntityManagerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/*
+    Category membership of products, one CategoryProductXref row at a time.
+
+    Category.getAllProductXrefs() is never initialized here, so adding a product to (or removing it from) a category
+    with tens of thousands of products costs a couple of indexed queries instead of hydrating the whole list. The
+    xrefs are the owning side - cached copies of both inverse collections are evicted once the transaction commits.
+ */
+@Service
+public class CategoryServiceProxy {
+
+    private static final String CATEGORY_PRODUCTS_ROLE = CategoryImpl.class.getName() + ".allProductXrefs";
+    private static final String PRODUCT_CATEGORIES_ROLE = ProductImpl.class.getName() + ".allParentCategoryXrefs";
+
+    @PersistenceContext(unitName = "blPU")
+    protected EntityManager em;
+
+    public Optional<CategoryProductXref> findProductXref(final Long categoryId, final Long productId) {
+        final List<CategoryProductXref> xrefs = em.createQuery(
+                "select x from CategoryProductXrefImpl x where x.category.id = :categoryId and x.product.id = :productId",
+                CategoryProductXref.class)
+                .setParameter("categoryId", categoryId)
+                .setParameter("productId", productId)
+                .setMaxResults(1)
+                .getResultList();
+
+        return xrefs.stream().findFirst();
+    }
+
+    /* Those of the given products which already are in the category */
+    public Set<Long> findProductIdsInCategory(final Long categoryId, final Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        return new HashSet<>(em.createQuery(
+                "select x.product.id from CategoryProductXrefImpl x where x.category.id = :categoryId and x.product.id in :productIds",
+                Long.class)
+                .setParameter("categoryId", categoryId)
+                .setParameter("productIds", productIds)
+                .getResultList());
+    }
+
+    public List<Product> findProductsByIds(final Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        return em.createQuery("select p from ProductImpl p where p.id in :productIds", Product.class)
+                .setParameter("productIds", productIds)
+                .getResultList();
+    }
+
+    public CategoryProductXref addProduct(final Category category, final Product product) {
+        final CategoryProductXref xref = new CategoryProductXrefImpl();
+        xref.setCategory(category);
+        xref.setProduct(product);
+        em.persist(xref);
+
+        evictAfterCommit(category.getId(), product.getId());
+        return xref;
+    }
+
+    public void removeProductXref(final CategoryProductXref xref) {
+        em.remove(xref);
+
+        evictAfterCommit(xref.getCategory().getId(), xref.getProduct().getId());
+    }
+
+    protected void evictAfterCommit(final Long categoryId, final Long productId) {
+        final Cache cache = ((HibernateEntityManagerFactory) em.getEntityManagerFactory()).getSessionFactory().getCache();
+
+        final Runnable evict = () -> {
+            cache.evictCollection(CATEGORY_PRODUCTS_ROLE, categoryId);
+            cache.evictCollection(PRODUCT_CATEGORIES_ROLE, productId);
+        };
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    evict.run();
+                }
+            });
+        } else {
+            evict.run();
+        }
+    }
+}
@@ -0,0 +1,373 @@
+package pl.touk.widerest.api.categories;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedMap;
+import org.broadleafcommerce.core.catalog.domain.Category;
+import org.broadleafcommerce.core.catalog.domain.CategoryAttribute;
+import org.broadleafcommerce.core.catalog.domain.CategoryMediaXref;
+import org.broadleafcommerce.core.catalog.domain.CategoryXref;
+import org.broadleafcommerce.core.catalog.service.CatalogService;
+import org.broadleafcommerce.core.inventory.service.type.InventoryType;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+import pl.touk.widerest.api.common.CatalogUtils;
+import pl.touk.widerest.api.common.HibernateListeners;
+import pl.touk.widerest.api.common.MediaConverter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnit;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/*
+    Immutable, in-memory snapshot of the category tree, so GET /categories does not have to walk the lazy
+    child/parent xrefs (and convert) every category level by level.
+
+    The snapshot is built from all categories once and then updated incrementally: every committed change of a
+    category, its attributes, media or subcategory links marks the category as dirty and the next read reloads just
+    the dirty ones. Parent edges are derived from child edges, so (un)linking a subcategory only touches its parent.
+    Changes made directly in the database (or by another node) are picked up by a full rebuild after
+    widerest.categories.tree.ttl seconds.
+ */
+@Component
+@ManagedResource(objectName = "pl.touk.widerest:type=CategoryTree")
+public class CategoryTree implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    @Value("${widerest.categories.tree.ttl:300}")
+    protected long timeToLiveSeconds;
+
+    @Resource(name = "blCatalogService")
+    protected CatalogService catalogService;
+
+    @Resource
+    protected MediaConverter mediaConverter;
+
+    @PersistenceUnit(unitName = "blPU")
+    protected EntityManagerFactory entityManagerFactory;
+
+    private final Set<Long> dirtyCategoryIds = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong rebuilds = new AtomicLong();
+
+    private final AtomicLong reloadedCategories = new AtomicLong();
+
+    private volatile Snapshot snapshot;
+
+    @PostConstruct
+    public void registerListeners() {
+        HibernateListeners.register(entityManagerFactory, this,
+                EventType.POST_COMMIT_INSERT,
+                EventType.POST_COMMIT_UPDATE,
+                EventType.POST_COMMIT_DELETE);
+    }
+
+    /* Has to be called inside a transaction - dirty categories (or all of them, after the TTL) are read */
+    public Snapshot snapshot() {
+        final Snapshot current = snapshot;
+        if (isStale(current)) {
+            return rebuild();
+        }
+        return dirtyCategoryIds.isEmpty() ? current : update();
+    }
+
+    protected synchronized Snapshot rebuild() {
+        /* Callers waiting for the lock find the snapshot already rebuilt by the first one */
+        final Snapshot current = snapshot;
+        if (!isStale(current)) {
+            return dirtyCategoryIds.isEmpty() ? current : update();
+        }
+
+        dirtyCategoryIds.clear();
+        final Snapshot rebuilt = new Snapshot(
+                catalogService.findAllCategories().stream().map(this::createNode).collect(Collectors.toList()),
+                Instant.now()
+        );
+        rebuilds.incrementAndGet();
+        snapshot = rebuilt;
+        return rebuilt;
+    }
+
+    protected synchronized Snapshot update() {
+        if (isStale(snapshot)) {
+            return rebuild();
+        }
+
+        final Map<Long, CategoryNode> reloaded = new HashMap<>();
+        final Set<Long> removedIds = new HashSet<>();
+
+        /* An id is taken out of the set before its category is read, a change committed meanwhile marks it again */
+        for (final Long categoryId : new ArrayList<>(dirtyCategoryIds)) {
+            dirtyCategoryIds.remove(categoryId);
+            final Category category = catalogService.findCategoryById(categoryId);
+            if (category != null) {
+                reloaded.put(categoryId, createNode(category));
+            } else {
+                removedIds.add(categoryId);
+            }
+            reloadedCategories.incrementAndGet();
+        }
+
+        final Snapshot updated = snapshot.patch(reloaded, removedIds);
+        snapshot = updated;
+        return updated;
+    }
+
+    private boolean isStale(final Snapshot current) {
+        return current == null || current.getBuiltAt().plusSeconds(timeToLiveSeconds).isBefore(Instant.now());
+    }
+
+    @ManagedOperation
+    public void invalidate() {
+        snapshot = null;
+    }
+
+    @ManagedAttribute
+    public int getSize() {
+        return Optional.ofNullable(snapshot).map(current -> current.getNodes().size()).orElse(0);
+    }
+
+    @ManagedAttribute
+    public long getRebuilds() {
+        return rebuilds.get();
+    }
+
+    @ManagedAttribute
+    public long getReloadedCategories() {
+        return reloadedCategories.get();
+    }
+
+    @Override
+    public void onPostInsert(final PostInsertEvent event) {
+        onChange(event.getEntity());
+    }
+
+    @Override
+    public void onPostUpdate(final PostUpdateEvent event) {
+        onChange(event.getEntity());
+    }
+
+    @Override
+    public void onPostDelete(final PostDeleteEvent event) {
+        onChange(event.getEntity());
+    }
+
+    protected void onChange(final Object entity) {
+        final Category category;
+        if (entity instanceof Category) {
+            category = (Category) entity;
+        } else if (entity instanceof CategoryXref) {
+            category = ((CategoryXref) entity).getCategory();
+        } else if (entity instanceof CategoryAttribute) {
+            category = ((CategoryAttribute) entity).getCategory();
+        } else if (entity instanceof CategoryMediaXref) {
+            category = ((CategoryMediaXref) entity).getCategory();
+        } else {
+            return;
+        }
+
+        Optional.ofNullable(category).map(Category::getId).ifPresent(dirtyCategoryIds::add);
+    }
+
+    protected CategoryNode createNode(final Category category) {
+        return CategoryNode.builder()
+                .id(category.getId())
+                .name(category.getName())
+                .description(category.getDescription())
+                .longDescription(category.getLongDescription())
+                .productsAvailability(Optional.ofNullable(category.getInventoryType()).map(InventoryType::getType).orElse(null))
+                .attributes(ImmutableMap.copyOf(
+                        Optional.ofNullable(category.getCategoryAttributesMap()).orElse(Collections.emptyMap()).entrySet().stream()
+                                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().toString()))
+                ))
+                .media(ImmutableMap.copyOf(
+                        Optional.ofNullable(category.getCategoryMediaXref()).orElse(Collections.emptyMap()).entrySet().stream()
+                                .collect(Collectors.toMap(Map.Entry::getKey, e -> mediaConverter.createDto(e.getValue().getMedia(), true, true)))
+                ))
+                .url(category.getUrl())
+                .fulfillmentType(category.getFulfillmentType())
+                .activeStartDate(Optional.ofNullable(category.getActiveStartDate()).map(Date::toInstant).orElse(null))
+                .activeEndDate(Optional.ofNullable(category.getActiveEndDate()).map(Date::toInstant).orElse(null))
+                .archived(!CatalogUtils.isNotArchived().test(category))
+                .childIds(ImmutableList.copyOf(
+                        Optional.ofNullable(category.getAllChildCategoryXrefs()).orElse(Collections.emptyList()).stream()
+                                .map(CategoryXref::getSubCategory)
+                                .filter(Objects::nonNull)
+                                .map(Category::getId)
+                                .collect(Collectors.toList())
+                ))
+                .build();
+    }
+
+    /* Same rules as CatalogUtils.shouldCategoryBeVisible */
+    public static Predicate<CategoryNode> shouldNodeBeVisible(final Instant now) {
+        return ((Predicate<CategoryNode>) node -> node.isActive(now))
+                .or(((Predicate<CategoryNode>) node -> !node.isArchived()).and(CatalogUtils.isUserAthorizedFor("PERMISSION_READ_CATEGORY")));
+    }
+
+    /*
+        Besides the nodes, a snapshot indexes the tree by depth: the categories at every level, level 0 being the
+        roots, and for every category queried so far its descendants with their (shortest) depth. A category reachable
+        by paths of different lengths shows up (once) on every such level.
+
+        Both indexes are built on first use and carried over by patch(): the levels as long as no subcategory link has
+        changed, the descendants of every category none of whose descendants has had its links changed.
+     */
+    public static class Snapshot {
+
+        private final Map<Long, CategoryNode> nodes;
+
+        private final ImmutableListMultimap<Long, Long> parentIds;
+
+        private final Instant builtAt;
+
+        private final Map<Long, Map<Long, Integer>> descendants;
+
+        private volatile ImmutableListMultimap<Integer, Long> levels;
+
+        Snapshot(final Collection<CategoryNode> nodes, final Instant builtAt) {
+            this(nodes.stream().collect(Collectors.toMap(CategoryNode::getId, node -> node)), builtAt, new ConcurrentHashMap<>(), null);
+        }
+
+        private Snapshot(final Map<Long, CategoryNode> nodes, final Instant builtAt,
+                         final Map<Long, Map<Long, Integer>> descendants, final ImmutableListMultimap<Integer, Long> levels) {
+            this.nodes = ImmutableSortedMap.copyOf(nodes);
+            this.builtAt = builtAt;
+            this.descendants = descendants;
+            this.levels = levels;
+
+            final ImmutableListMultimap.Builder<Long, Long> parentIds = ImmutableListMultimap.builder();
+            this.nodes.values().forEach(parent -> parent.getChildIds().forEach(childId -> parentIds.put(childId, parent.getId())));
+            this.parentIds = parentIds.build();
+        }
+
+        /* A new snapshot with the given categories replaced (or added) and removed, same build time */
+        Snapshot patch(final Map<Long, CategoryNode> reloaded, final Set<Long> removedIds) {
+            final Map<Long, CategoryNode> patched = new HashMap<>(nodes);
+            patched.putAll(reloaded);
+            patched.keySet().removeAll(removedIds);
+
+            final Set<Long> relinkedIds = new HashSet<>(removedIds);
+            reloaded.values().stream()
+                    .filter(node -> !Optional.ofNullable(nodes.get(node.getId())).map(CategoryNode::getChildIds).equals(Optional.of(node.getChildIds())))
+                    .map(CategoryNode::getId)
+                    .forEach(relinkedIds::add);
+
+            final Map<Long, Map<Long, Integer>> carried = new ConcurrentHashMap<>();
+            descendants.forEach((ancestorId, depths) -> {
+                if (!relinkedIds.contains(ancestorId) && Collections.disjoint(depths.keySet(), relinkedIds)) {
+                    carried.put(ancestorId, depths);
+                }
+            });
+
+            return new Snapshot(patched, builtAt, carried, relinkedIds.isEmpty() ? levels : null);
+        }
+
+        public Map<Long, CategoryNode> getNodes() {
+            return nodes;
+        }
+
+        public Instant getBuiltAt() {
+            return builtAt;
+        }
+
+        public Optional<CategoryNode> getNode(final Long id) {
+            return Optional.ofNullable(nodes.get(id));
+        }
+
+        public List<CategoryNode> getRoots() {
+            return getCategoriesAtLevel(0);
+        }
+
+        public List<CategoryNode> getChildren(final CategoryNode node) {
+            return node.getChildIds().stream()
+                    .map(nodes::get)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+        }
+
+        public List<Long> getParentIds(final CategoryNode node) {
+            return parentIds.get(node.getId());
+        }
+
+        public List<CategoryNode> getCategoriesAtLevel(final int level) {
+            ImmutableListMultimap<Integer, Long> index = levels;
+            if (index == null) {
+                index = indexLevels();
+                levels = index;
+            }
+            return index.get(level).stream().map(nodes::get).collect(Collectors.toList());
+        }
+
+        /* Descendants of a category at most 'depth' links below it, nearest first */
+        public List<CategoryNode> getDescendants(final CategoryNode node, final int depth) {
+            return descendants.computeIfAbsent(node.getId(), this::indexDescendants).entrySet().stream()
+                    .filter(descendant -> descendant.getValue() <= depth)
+                    .sorted(Map.Entry.comparingByValue())
+                    .map(descendant -> nodes.get(descendant.getKey()))
+                    .collect(Collectors.toList());
+        }
+
+        private ImmutableListMultimap<Integer, Long> indexLevels() {
+            final ImmutableListMultimap.Builder<Integer, Long> levels = ImmutableListMultimap.builder();
+
+            Set<Long> level = nodes.keySet().stream()
+                    .filter(id -> !parentIds.containsKey(id))
+                    .collect(Collectors.toCollection(LinkedHashSet::new));
+
+            /* A cycle can be walked once at most, deeper levels would only repeat it */
+            for (int depth = 0; !level.isEmpty() && depth <= nodes.size(); depth++) {
+                levels.putAll(depth, level);
+                level = level.stream()
+                        .flatMap(id -> nodes.get(id).getChildIds().stream())
+                        .filter(nodes::containsKey)
+                        .collect(Collectors.toCollection(LinkedHashSet::new));
+            }
+            return levels.build();
+        }
+
+        private Map<Long, Integer> indexDescendants(final Long ancestorId) {
+            final Map<Long, Integer> depths = new LinkedHashMap<>();
+            List<CategoryNode> level = getChildren(nodes.get(ancestorId));
+            for (int depth = 1; !level.isEmpty(); depth++) {
+                final List<CategoryNode> next = new ArrayList<>();
+                for (final CategoryNode descendant : level) {
+                    if (!descendant.getId().equals(ancestorId) && depths.putIfAbsent(descendant.getId(), depth) == null) {
+                        next.addAll(getChildren(descendant));
+                    }
+                }
+                level = next;
+            }
+            return ImmutableMap.copyOf(depths);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package pl.touk.widerest.api.categories;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+@ApiModel(value = "ProductReferenceResult", description = "Result of inserting a single product of a batch into a category")
+public class ProductReferenceResultDto {
+
+    @ApiModelProperty(position = 0, value = "Position of the product link in the request", required = true, dataType = "java.lang.Integer")
+    private int index;
+
+    @ApiModelProperty(position = 1, value = "HTTP status the product would have got from POST /categories/{id}/products?href=", required = true, dataType = "java.lang.Integer")
+    private int status;
+
+    @ApiModelProperty(position = 2, value = "Link to the product", dataType = "java.lang.String")
+    private String href;
+
+    @ApiModelProperty(position = 3, value = "Reasons why the product has not been inserted")
+    private List<String> errors;
+}
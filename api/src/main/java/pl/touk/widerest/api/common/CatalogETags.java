@@ -0,0 +1,224 @@
+package pl.touk.widerest.api.common;
+
+import lombok.extern.slf4j.Slf4j;
+import org.broadleafcommerce.common.currency.domain.BroadleafCurrency;
+import org.broadleafcommerce.common.locale.domain.Locale;
+import org.broadleafcommerce.common.web.BroadleafRequestContext;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCollectionRecreateEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionRemoveEvent;
+import org.hibernate.event.spi.PostCollectionRemoveEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceException;
+import javax.persistence.PersistenceUnit;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toSet;
+
+/*
+    Strong ETags for catalog resources.
+
+    Broadleaf catalog entities have neither a version nor an update timestamp, so the tag is built from a persisted
+    catalog revision instead (CatalogRevision, shared by all nodes). Every transaction which inserts, updates or
+    deletes an entity that can show up in a product, SKU or category representation bumps it right after it commits,
+    in a transaction of its own - bumping it in the changing transaction would hold the lock of that single row until
+    the commit and serialize every catalog write, SKU quantities at checkout included. Reading the revision is
+    a single primary key lookup, so If-None-Match can be answered before any conversion.
+
+    A tag taken between the commit and the bump is older than the representation, which ends with the bump - a stale
+    304 is possible only for that moment.
+
+    Besides the revision, the tag covers everything else the representation depends on: the caller's authorities
+    (inactive products and categories are shown to staff only), the currency and the locale of the request (prices).
+    Links are never filtered by active dates, but embedded representations do depend on the time - subcategories and
+    products come and go with their active dates without any write - so those never get a tag.
+ */
+@Slf4j
+@Component
+public class CatalogETags implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener,
+        PostCollectionRecreateEventListener, PostCollectionUpdateEventListener, PostCollectionRemoveEventListener {
+
+    private static final String[] CATALOG_PACKAGES = {
+            "org.broadleafcommerce.core.catalog.",
+            "org.broadleafcommerce.common.media.",
+            "org.broadleafcommerce.core.order.fulfillment."
+    };
+
+    private static final String BUMP_REVISION = "UPDATE CatalogRevision r SET r.revision = r.revision + 1 WHERE r.id = :id";
+
+    /* Sessions whose transaction already bumps the revision after it commits */
+    private final Set<SessionImplementor> bumpingSessions = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    @PersistenceUnit(unitName = "blPU")
+    protected EntityManagerFactory entityManagerFactory;
+
+    @PersistenceContext(unitName = "blPU")
+    protected EntityManager em;
+
+    @PostConstruct
+    public void registerListeners() {
+        HibernateListeners.register(entityManagerFactory, this,
+                EventType.POST_INSERT,
+                EventType.POST_UPDATE,
+                EventType.POST_DELETE,
+                EventType.POST_COLLECTION_RECREATE,
+                EventType.POST_COLLECTION_UPDATE,
+                EventType.POST_COLLECTION_REMOVE);
+
+        createRevision();
+    }
+
+    /* The row comes with the DDL, Hibernate created schemas (development) start without it */
+    protected void createRevision() {
+        final EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            entityManager.getTransaction().begin();
+            if (entityManager.find(CatalogRevision.class, CatalogRevision.ID) == null) {
+                entityManager.persist(new CatalogRevision(CatalogRevision.ID, System.currentTimeMillis()));
+            }
+            entityManager.getTransaction().commit();
+        } catch (PersistenceException e) {
+            /* another node has just created it */
+            if (entityManager.getTransaction().isActive()) {
+                entityManager.getTransaction().rollback();
+            }
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    /*
+        Has to be taken before the entity is read - a change committed in between makes the tag older than the
+        representation, which costs a 200 at most, never a stale 304.
+     */
+    public String currentETag() {
+        final long revision = Optional.ofNullable(em.find(CatalogRevision.class, CatalogRevision.ID))
+                .map(CatalogRevision::getRevision)
+                .orElse(0L);
+
+        return "\"" + Long.toString(revision, Character.MAX_RADIX) + "-" + Integer.toHexString(requestHash()) + "\"";
+    }
+
+    /*
+        Same contract as WebRequest.checkNotModified() - when true the controller should return null. Without
+        a tag (embedded representations) only Cache-Control is set.
+     */
+    public boolean checkNotModified(final ServletWebRequest request, final String eTag, final String cacheControl) {
+        request.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        if (eTag == null) {
+            return false;
+        }
+        request.getResponse().setHeader(HttpHeaders.VARY, HttpHeaders.AUTHORIZATION + ", " + HttpHeaders.ACCEPT_LANGUAGE);
+        return request.checkNotModified(eTag);
+    }
+
+    @Override
+    public void onPostInsert(final PostInsertEvent event) {
+        onChange(event.getEntity(), event.getSession());
+    }
+
+    @Override
+    public void onPostUpdate(final PostUpdateEvent event) {
+        onChange(event.getEntity(), event.getSession());
+    }
+
+    @Override
+    public void onPostDelete(final PostDeleteEvent event) {
+        onChange(event.getEntity(), event.getSession());
+    }
+
+    @Override
+    public void onPostRecreateCollection(final PostCollectionRecreateEvent event) {
+        onCollectionChange(event);
+    }
+
+    @Override
+    public void onPostUpdateCollection(final PostCollectionUpdateEvent event) {
+        onCollectionChange(event);
+    }
+
+    @Override
+    public void onPostRemoveCollection(final PostCollectionRemoveEvent event) {
+        onCollectionChange(event);
+    }
+
+    protected void onCollectionChange(final AbstractCollectionEvent event) {
+        Optional.ofNullable(event.getAffectedOwnerOrNull()).ifPresent(owner -> onChange(owner, event.getSession()));
+    }
+
+    protected void onChange(final Object entity, final EventSource session) {
+        final String entityClassName = entity.getClass().getName();
+        if (Stream.of(CATALOG_PACKAGES).anyMatch(entityClassName::startsWith) && bumpingSessions.add(session)) {
+            session.getActionQueue().registerProcess((AfterTransactionCompletionProcess) (success, completed) -> {
+                bumpingSessions.remove(completed);
+                if (success) {
+                    bumpRevision();
+                }
+            });
+        }
+    }
+
+    /* The change is committed already, a failed bump leaves the tags as they are until the next change */
+    protected void bumpRevision() {
+        final EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            entityManager.getTransaction().begin();
+            entityManager.createQuery(BUMP_REVISION).setParameter("id", CatalogRevision.ID).executeUpdate();
+            entityManager.getTransaction().commit();
+        } catch (PersistenceException e) {
+            log.error("Could not bump catalog revision", e);
+            if (entityManager.getTransaction().isActive()) {
+                entityManager.getTransaction().rollback();
+            }
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    private static int requestHash() {
+        final Set<String> authorities = Optional.ofNullable(SecurityContextHolder.getContext())
+                .map(SecurityContext::getAuthentication)
+                .map(Authentication::getAuthorities)
+                .map(Collection::stream)
+                .map(stream -> stream.map(GrantedAuthority::getAuthority).collect(toSet()))
+                .orElse(Collections.emptySet());
+
+        final Optional<BroadleafRequestContext> context = Optional.ofNullable(BroadleafRequestContext.getBroadleafRequestContext());
+
+        return Arrays.asList(
+                authorities,
+                context.map(BroadleafRequestContext::getBroadleafCurrency).map(BroadleafCurrency::getCurrencyCode).orElse(null),
+                context.map(BroadleafRequestContext::getLocale).map(Locale::getLocaleCode).orElse(null)
+        ).hashCode();
+    }
+}
@@ -0,0 +1,35 @@
+package pl.touk.widerest.api.common;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/*
+    The single row counting committed catalog changes, shared by all nodes. Bumped by CatalogETags right after
+    a transaction which changes the catalog commits - changes made directly in the database have to bump it as well:
+
+        UPDATE WD_CATALOG_REVISION SET REVISION = REVISION + 1 WHERE ID = 1
+ */
+@Entity
+@Table(name = "WD_CATALOG_REVISION")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogRevision {
+
+    public static final long ID = 1L;
+
+    @Id
+    @Column(name = "ID")
+    private Long id;
+
+    @Column(name = "REVISION", nullable = false)
+    private long revision;
+}
@@ -0,0 +1,28 @@
+package pl.touk.widerest.api.common;
+
+import org.hibernate.ejb.HibernateEntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+
+import javax.persistence.EntityManagerFactory;
+
+public class HibernateListeners {
+
+    /* Appends the listener to the given events of the session factory behind a (Hibernate) entity manager factory */
+    @SuppressWarnings("unchecked")
+    public static void register(final EntityManagerFactory entityManagerFactory, final Object listener, final EventType<?>... eventTypes) {
+        final SessionFactoryImplementor sessionFactory =
+                (SessionFactoryImplementor) ((HibernateEntityManagerFactory) entityManagerFactory).getSessionFactory();
+
+        final EventListenerRegistry eventListenerRegistry =
+                sessionFactory.getServiceRegistry().getService(EventListenerRegistry.class);
+
+        for (final EventType<?> eventType : eventTypes) {
+            if (!eventType.baseListenerInterface().isInstance(listener)) {
+                throw new IllegalArgumentException(listener.getClass().getName() + " does not listen to " + eventType.eventName());
+            }
+            eventListenerRegistry.appendListeners((EventType<Object>) eventType, listener);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package pl.touk.widerest.api.common;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.BAD_REQUEST)
+public class InvalidSortException extends RuntimeException {
+
+    public InvalidSortException(String message) {
+        super(message);
+    }
+
+    public InvalidSortException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,39 @@
+package pl.touk.widerest.api.common;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Optional;
+
+/*
+    Opaque cursor for keyset pagination. Clients should treat it as an arbitrary string,
+    currently it is just the last seen entity ID, base64-encoded.
+ */
+public class KeysetCursor {
+
+    private static final String PREFIX = "id:";
+
+    private KeysetCursor() {
+    }
+
+    public static String encode(final long lastSeenId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + lastSeenId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /* An empty cursor means "start from the beginning" */
+    public static Optional<Long> decode(final String cursor) throws InvalidCursorException {
+        if (cursor == null || cursor.isEmpty()) {
+            return Optional.empty();
+        }
+
+        try {
+            final String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!decoded.startsWith(PREFIX)) {
+                throw new InvalidCursorException("Invalid cursor: " + cursor);
+            }
+            return Optional.of(Long.parseLong(decoded.substring(PREFIX.length())));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Invalid cursor: " + cursor, e);
+        }
+    }
+}
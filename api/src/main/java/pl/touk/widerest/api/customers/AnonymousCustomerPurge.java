@@ -0,0 +1,176 @@
+package pl.touk.widerest.api.customers;
+
+import lombok.extern.slf4j.Slf4j;
+import org.broadleafcommerce.core.order.domain.Order;
+import org.broadleafcommerce.core.order.service.OrderService;
+import org.broadleafcommerce.core.order.service.type.OrderStatus;
+import org.broadleafcommerce.profile.core.domain.CustomerImpl;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+    Anonymous customers are left behind by every visitor who wrote anything (see AnonymousUserDetailsService),
+    together with their IN_PROCESS carts. Anonymous customers (never registered, username still equal to the id) that
+    never submitted an order are deleted once neither they nor any of their carts have been touched for
+    widerest.customers.purge.max-age-days.
+
+    Every batch is a transaction of its own, so rows are locked for one batch only. A single run is bounded by
+    widerest.customers.purge.max-batches, whatever is left is picked up by the next one.
+
+    Disabled by default - enable it (widerest.customers.purge.enabled) on a single node only, runs on several nodes
+    would compete for the same customers.
+ */
+@Slf4j
+@Component
+@ManagedResource(objectName = "pl.touk.widerest:type=AnonymousCustomerPurge")
+public class AnonymousCustomerPurge {
+
+    @Value("${widerest.customers.purge.enabled:false}")
+    protected boolean enabled;
+
+    @Value("${widerest.customers.purge.max-age-days:30}")
+    protected long maxAgeDays;
+
+    @Value("${widerest.customers.purge.batch-size:100}")
+    protected int batchSize;
+
+    @Value("${widerest.customers.purge.max-batches:100}")
+    protected int maxBatches;
+
+    @PersistenceContext(unitName = "blPU")
+    protected EntityManager em;
+
+    @Resource(name = "blOrderService")
+    protected OrderService orderService;
+
+    @Resource(name = "blTransactionManager")
+    protected PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    private final AtomicLong purgedCustomers = new AtomicLong();
+
+    private final AtomicLong purgedOrders = new AtomicLong();
+
+    private final AtomicLong runs = new AtomicLong();
+
+    private final AtomicLong totalTimeMillis = new AtomicLong();
+
+    private volatile long lastRunTimeMillis;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(initialDelayString = "${widerest.customers.purge.interval:3600000}",
+            fixedDelayString = "${widerest.customers.purge.interval:3600000}")
+    public void purgeStale() {
+        if (enabled) {
+            purge(new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(maxAgeDays)));
+        }
+    }
+
+    /* Returns the number of customers purged */
+    @ManagedOperation
+    public synchronized long purge(final Date inactiveSince) {
+        final long start = System.currentTimeMillis();
+        long customers = 0;
+
+        for (int batch = 0; batch < maxBatches; batch++) {
+            final int purged = transactionTemplate.execute(status -> purgeBatch(inactiveSince));
+            customers += purged;
+            if (purged < batchSize) {
+                break;
+            }
+        }
+
+        lastRunTimeMillis = System.currentTimeMillis() - start;
+        totalTimeMillis.addAndGet(lastRunTimeMillis);
+        runs.incrementAndGet();
+
+        if (customers > 0) {
+            log.info("Purged {} anonymous customers inactive since {} in {} ms", customers, inactiveSince, lastRunTimeMillis);
+        }
+        return customers;
+    }
+
+    /* Last activity is the latest update of the customer or of any of its carts */
+    protected int purgeBatch(final Date inactiveSince) {
+        final List<Long> customerIds = em.createQuery(
+                "select c.id from CustomerImpl c " +
+                        "where c.registered = false and c.username = cast(c.id as string) " +
+                        "and coalesce(c.auditable.dateUpdated, c.auditable.dateCreated) < :inactiveSince " +
+                        "and not exists (select o.id from OrderImpl o where o.customer = c and (o.status <> :cart " +
+                        "or coalesce(o.auditable.dateUpdated, o.auditable.dateCreated) >= :inactiveSince)) " +
+                        "order by c.id", Long.class)
+                .setParameter("inactiveSince", inactiveSince)
+                .setParameter("cart", OrderStatus.IN_PROCESS.getType())
+                .setMaxResults(batchSize)
+                .getResultList();
+
+        if (customerIds.isEmpty()) {
+            return 0;
+        }
+
+        final List<Order> carts = em.createQuery("select o from OrderImpl o where o.customer.id in :customerIds", Order.class)
+                .setParameter("customerIds", customerIds)
+                .getResultList();
+        carts.forEach(orderService::cancelOrder);
+
+        em.createQuery("delete from CustomerRoleImpl r where r.customer.id in :customerIds")
+                .setParameter("customerIds", customerIds)
+                .executeUpdate();
+
+        em.createQuery("select c from CustomerImpl c where c.id in :customerIds", CustomerImpl.class)
+                .setParameter("customerIds", customerIds)
+                .getResultList()
+                .forEach(em::remove);
+
+        em.flush();
+
+        purgedOrders.addAndGet(carts.size());
+        purgedCustomers.addAndGet(customerIds.size());
+        return customerIds.size();
+    }
+
+    @ManagedAttribute
+    public long getPurgedCustomers() {
+        return purgedCustomers.get();
+    }
+
+    @ManagedAttribute
+    public long getPurgedOrders() {
+        return purgedOrders.get();
+    }
+
+    @ManagedAttribute
+    public long getRuns() {
+        return runs.get();
+    }
+
+    @ManagedAttribute
+    public long getTotalTimeMillis() {
+        return totalTimeMillis.get();
+    }
+
+    @ManagedAttribute
+    public long getLastRunTimeMillis() {
+        return lastRunTimeMillis;
+    }
+}
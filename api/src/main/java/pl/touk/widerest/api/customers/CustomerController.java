@@ -8,6 +8,7 @@ import io.swagger.annotations.ApiParam;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import javaslang.control.Try;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.broadleafcommerce.core.order.domain.Order;
 import org.broadleafcommerce.core.order.service.MergeCartService;
 import org.broadleafcommerce.core.order.service.OrderService;
@@ -52,6 +53,7 @@ import javax.annotation.Resource;
 import javax.validation.Valid;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.function.Function;
 import java.util.function.UnaryOperator;
@@ -124,7 +126,7 @@ public class CustomerController {
                 Case(instanceOf(AdminUserDetails.class), () -> customerServiceProxy.getAllCustomers().stream()
                         .map(customer -> customerConverter.createDto(customer, embed, link))
                         .collect(Collectors.toList())),
-                Case(instanceOf(CustomerUserDetails.class), () -> Optional.ofNullable(customerServiceProxy.getCustomerById(((CustomerUserDetails) userDetails).getId()))
+                Case(instanceOf(CustomerUserDetails.class), () -> Optional.ofNullable(customerUserDetailsService.readCustomer(((CustomerUserDetails) userDetails).getId()))
                         //.map(id -> customerEntityToDto.apply(id))
                         .map(id -> customerConverter.createDto(id, embed, link))
                         .map(Collections::singletonList)
@@ -158,7 +160,7 @@ public class CustomerController {
     ) {
         return ofNullable(customerId)
                 .map(toCustomerId(customerUserDetails, customerId))
-                .map(customerService::readCustomerById)
+                .map(id -> readCustomer(customerUserDetails, id))
                 .map(customer -> customerConverter.createDto(customer, embed, link))
                 .map(dto -> new ResponseEntity<>(dto, HttpStatus.OK))
                 .orElseThrow(CustomerNotFoundException::new);
@@ -182,7 +184,7 @@ public class CustomerController {
     ) {
         ofNullable(customerId)
                 .map(toCustomerId(customerUserDetails, customerId))
-                .map(customerService::readCustomerById)
+                .map(id -> readCustomerForUpdate(customerUserDetails, id))
                 .map(customer -> customerConverter.updateEntity(customer, customerDto))
                 .map(customerService::saveCustomer)
                 .orElseThrow(CustomerNotFoundException::new);
@@ -206,7 +208,7 @@ public class CustomerController {
     ) {
         return ofNullable(customerId)
                 .map(toCustomerId(customerUserDetails, customerId))
-                .map(customerService::readCustomerById)
+                .map(id -> readCustomer(customerUserDetails, id))
                 .map(this::generateCode)
                 .map(ResponseEntity::ok)
                 .orElseThrow(CustomerNotFoundException::new);
@@ -222,7 +224,7 @@ public class CustomerController {
     )
     @ApiResponses(value = {
             @ApiResponse(code = 200, message = "New customer successfully registered", response = Void.class),
-            @ApiResponse(code = 404, message = "Specified customer already exists or provided credentials (email, username) are already taken")
+            @ApiResponse(code = 404, message = "Specified customer already exists or provided credentials (email, username) are already taken or reserved")
     })
     public void registerCustomer(
             @ApiIgnore @AuthenticationPrincipal final CustomerUserDetails customerUserDetails,
@@ -233,11 +235,13 @@ public class CustomerController {
     )  {
         // Assuming user already has token
         ofNullable(customerUserDetails.getId())
-                .map(customerService::readCustomerById)
+                .map(customerUserDetailsService::readCustomer)
                 .filter(c -> !c.isRegistered())
                 .orElseThrow(() -> new ResourceNotFoundException("User already registered"));
 
+        /* all-digit usernames are reserved for anonymous customers, whose username is their id */
         Optional.of(username)
+                .filter(customerName -> !NumberUtils.isDigits(customerName))
                 .filter(customerName -> isNull(customerService.readCustomerByUsername(customerName)))
                 .orElseThrow(() -> new ResourceNotFoundException("Username already taken, please try with other"));
 
@@ -245,7 +249,7 @@ public class CustomerController {
                 .filter(e -> isNull(customerService.readCustomerByEmail(e)))
                 .orElseThrow(() -> new ResourceNotFoundException("Email address already taken, please try with other"));
 
-        final Customer customer = customerService.readCustomerById(customerUserDetails.getId());
+        final Customer customer = customerUserDetailsService.getOrCreateCustomer(customerUserDetails.getId());
         customer.setUsername(username);
         customer.setEmailAddress(email);
 
@@ -271,6 +275,10 @@ public class CustomerController {
                 (anonymousToken).getPrincipal();
 
         final Customer anonymousUser = customerService.readCustomerById(anonymousUserDetails.getId());
+        if (anonymousUser == null) {
+            /* never persisted, so there is no cart to merge either */
+            return;
+        }
 
         final Order anonymousCart = orderService.findCartForCustomer(anonymousUser);
 
@@ -285,6 +293,23 @@ public class CustomerController {
                 .orElse(Try.of(() -> parseLong(customerId)).getOrElse((Long) null));
     }
 
+    /* Anonymous customers are persisted on their first write only, until then their own reads see a transient one */
+    private Customer readCustomer(final CustomerUserDetails customerUserDetails, final Long customerId) {
+        return isOwnCustomer(customerUserDetails, customerId)
+                ? customerUserDetailsService.readCustomer(customerId)
+                : customerService.readCustomerById(customerId);
+    }
+
+    private Customer readCustomerForUpdate(final CustomerUserDetails customerUserDetails, final Long customerId) {
+        return isOwnCustomer(customerUserDetails, customerId)
+                ? customerUserDetailsService.getOrCreateCustomer(customerId)
+                : customerService.readCustomerById(customerId);
+    }
+
+    private static boolean isOwnCustomer(final CustomerUserDetails customerUserDetails, final Long customerId) {
+        return customerUserDetails != null && Objects.equals(customerUserDetails.getId(), customerId);
+    }
+
     private static UnaryOperator<Customer> toCustomerWithEmail(final String email) {
         return customer -> {
             customer.setEmailAddress(email);
@@ -5,22 +5,24 @@ import org.broadleafcommerce.profile.core.domain.Customer;
 import org.broadleafcommerce.profile.core.domain.CustomerAddress;
 import org.broadleafcommerce.profile.core.service.CustomerAddressService;
 import org.broadleafcommerce.profile.core.service.CustomerService;
-import org.springframework.hateoas.mvc.ControllerLinkBuilder;
 import org.springframework.stereotype.Component;
 import pl.touk.widerest.api.Converter;
 import pl.touk.widerest.api.common.AddressConverter;
+import pl.touk.widerest.hal.LinkTemplate;
 
 import javax.annotation.Resource;
 import java.util.Optional;
 
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
-import static org.springframework.hateoas.mvc.ControllerLinkBuilder.linkTo;
-import static org.springframework.hateoas.mvc.ControllerLinkBuilder.methodOn;
+import static pl.touk.widerest.hal.LinkTemplates.linkTemplate;
 
 @Component
 public class CustomerConverter implements Converter<Customer, CustomerDto> {
 
+    private static final LinkTemplate CUSTOMER_LINK = linkTemplate(CustomerController.class, "readOneCustomer");
+    private static final LinkTemplate AUTHORIZATION_LINK = linkTemplate(CustomerController.class, "createAuthorizationCode");
+
     @Resource
     private AddressConverter addressConverter;
 
@@ -48,10 +50,10 @@ public class CustomerConverter implements Converter<Customer, CustomerDto> {
                 )
                 .build();
 
-        customerDto.add(ControllerLinkBuilder.linkTo(methodOn(CustomerController.class).readOneCustomer(null, customer.getId().toString(), null, null)).withSelfRel());
+        customerDto.add(CUSTOMER_LINK.linkTo(customer.getId().toString()).withSelfRel());
 
         if (link) {
-            customerDto.add(linkTo(methodOn(CustomerController.class).createAuthorizationCode(null, customer.getId().toString())).withRel("authorization"));
+            customerDto.add(AUTHORIZATION_LINK.linkTo(customer.getId().toString()).withRel("authorization"));
         }
 
         return customerDto;
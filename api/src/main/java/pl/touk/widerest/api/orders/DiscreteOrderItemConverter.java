@@ -13,6 +13,7 @@ import pl.touk.widerest.api.orders.fulfillments.FulfillmentController;
 import pl.touk.widerest.api.orders.fulfillments.FulfillmentConverter;
 import pl.touk.widerest.api.products.ProductController;
 import pl.touk.widerest.hal.EmbeddedResource;
+import pl.touk.widerest.hal.LinkTemplate;
 
 import javax.annotation.Resource;
 import java.math.BigDecimal;
@@ -21,12 +22,15 @@ import java.util.Map;
 import java.util.Optional;
 
 import static java.util.stream.Collectors.toMap;
-import static org.springframework.hateoas.mvc.ControllerLinkBuilder.linkTo;
-import static org.springframework.hateoas.mvc.ControllerLinkBuilder.methodOn;
+import static pl.touk.widerest.hal.LinkTemplates.linkTemplate;
 
 @Component
 public class DiscreteOrderItemConverter implements Converter<DiscreteOrderItem, DiscreteOrderItemDto> {
 
+    private static final LinkTemplate PRODUCT_LINK = linkTemplate(ProductController.class, "readOneProductById");
+    private static final LinkTemplate ITEM_LINK = linkTemplate(OrderController.class, "getOneItemFromOrder");
+    private static final LinkTemplate FULFILLMENT_LINK = linkTemplate(FulfillmentController.class, "getOrderFulfillmentById");
+
     public static final String FULFILLMENT_REL = "fulfillment";
 
     @Resource
@@ -50,9 +54,7 @@ public class DiscreteOrderItemConverter implements Converter<DiscreteOrderItem,
                 .retailPrice(discreteOrderItem.getRetailPrice())
                 .quantity(discreteOrderItem.getQuantity())
                 .productName(discreteOrderItem.getName())
-                .productHref(linkTo(methodOn(ProductController.class)
-                        .readOneProductById(productId, null, null)).toUri().toASCIIString()
-                )
+                .productHref(PRODUCT_LINK.linkTo(productId).toUri().toASCIIString())
                 .description(sku.getDescription())
                 .price(Optional.ofNullable(discreteOrderItem.getTotalPrice()).orElse(errCode).getAmount())
                 .attributes(
@@ -66,14 +68,14 @@ public class DiscreteOrderItemConverter implements Converter<DiscreteOrderItem,
                 )
                 .build();
 
-        orderItemDto.add(linkTo(methodOn(OrderController.class).getOneItemFromOrder(null, discreteOrderItem.getOrder().getId(), discreteOrderItem.getId(), null, null)).withSelfRel());
+        orderItemDto.add(ITEM_LINK.linkTo(discreteOrderItem.getOrder().getId(), discreteOrderItem.getId()).withSelfRel());
 
         Optional<FulfillmentGroup> fullfillmentGroup = findFullfillmentGroup(discreteOrderItem);
 
         if (link) {
-            orderItemDto.add(linkTo(methodOn(ProductController.class).readOneProductById(productId, null, null)).withRel("product"));
+            orderItemDto.add(PRODUCT_LINK.linkTo(productId).withRel("product"));
             fullfillmentGroup.ifPresent(fulfillmentGroup -> {
-                orderItemDto.add(linkTo(methodOn(FulfillmentController.class).getOrderFulfillmentById(null, discreteOrderItem.getOrder().getId(), fulfillmentGroup.getId(), null, null)).withRel(FULFILLMENT_REL));
+                orderItemDto.add(FULFILLMENT_LINK.linkTo(discreteOrderItem.getOrder().getId(), fulfillmentGroup.getId()).withRel(FULFILLMENT_REL));
             });
         }
 
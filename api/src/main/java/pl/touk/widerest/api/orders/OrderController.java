@@ -28,7 +28,6 @@ import org.broadleafcommerce.core.order.service.exception.UpdateCartException;
 import org.broadleafcommerce.core.order.service.type.OrderStatus;
 import org.broadleafcommerce.core.pricing.service.exception.PricingException;
 import org.broadleafcommerce.profile.core.domain.Customer;
-import org.broadleafcommerce.profile.core.service.CustomerService;
 import org.broadleafcommerce.profile.core.service.CustomerUserDetails;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.hateoas.MediaTypes;
@@ -85,9 +84,6 @@ public class OrderController {
     @Resource(name = "blOrderService")
     protected OrderService orderService;
 
-    @Resource(name = "blCustomerService")
-    private CustomerService customerService;
-
     @Resource(name = "blCatalogService")
     protected CatalogService catalogService;
 
@@ -132,18 +128,21 @@ public class OrderController {
     })
     public Resources<OrderDto> getOrders(
             @ApiIgnore @AuthenticationPrincipal UserDetails userDetails,
-            @ApiParam(value = "Status to be used to filter orders")
             @RequestParam(value = "link", defaultValue = "true") Boolean link,
-            @RequestParam(value = "status", required = false) String status
+            @ApiParam(value = "Status to be used to filter orders")
+            @RequestParam(value = "status", required = false) String status,
+            @ApiParam(value = "Amount of orders to be returned (0 returns all of them)")
+            @RequestParam(value = "limit", required = false, defaultValue = "0") Integer limit,
+            @ApiParam(value = "Offset which to start returning orders from")
+            @RequestParam(value = "offset", required = false, defaultValue = "0") Integer offset
     ) {
 
         return new Resources<>(
-                orderServiceProxy.getOrdersByCustomer(userDetails).stream()
+                orderServiceProxy.getOrdersByCustomer(userDetails, status, limit, offset).stream()
                         .map(order -> orderConverter.createDto(order, false, link))
-                        .filter(x -> status == null || x.getStatus().equals(status))
                         .collect(toList()),
 
-                linkTo(methodOn(getClass()).getOrders(null, null, status)).withSelfRel()
+                linkTo(methodOn(getClass()).getOrders(null, null, status, limit, offset)).withSelfRel()
         );
     }
 
@@ -190,8 +189,8 @@ public class OrderController {
 
         final Customer currentCustomer = Optional.ofNullable(customerUserDetails)
                 .map(CustomerUserDetails::getId)
-                .map(customerService::readCustomerById)
-                .orElse(anonymousUserDetailsService.createAnonymousCustomer());
+                .map(anonymousUserDetailsService::getOrCreateCustomer)
+                .orElseGet(anonymousUserDetailsService::createAnonymousCustomer);
 
         final Order cart = orderService.createNewCartForCustomer(currentCustomer);
 
@@ -474,9 +473,11 @@ public class OrderController {
             notes = "Get a number of all active orders",
             response = Integer.class)
     public ResponseEntity<String> getOrdersCount(
-            @ApiIgnore @AuthenticationPrincipal UserDetails userDetails) {
+            @ApiIgnore @AuthenticationPrincipal UserDetails userDetails,
+            @ApiParam(value = "Status to be used to filter orders")
+            @RequestParam(value = "status", required = false) String status) {
 
-        final String ordersCount = Long.toString(orderServiceProxy.getOrdersByCustomer(userDetails).stream().count());
+        final String ordersCount = Long.toString(orderServiceProxy.getOrdersCountByCustomer(userDetails, status));
 
         return ResponseEntity.ok(ordersCount);
     }
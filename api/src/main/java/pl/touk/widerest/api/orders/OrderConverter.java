@@ -4,7 +4,6 @@ import org.broadleafcommerce.common.money.Money;
 import org.broadleafcommerce.core.order.domain.Order;
 import org.broadleafcommerce.core.order.domain.OrderAttribute;
 import org.broadleafcommerce.core.order.service.OrderService;
-import org.springframework.hateoas.mvc.ControllerLinkBuilder;
 import org.springframework.stereotype.Component;
 import pl.touk.widerest.api.Converter;
 import pl.touk.widerest.api.customers.CustomerController;
@@ -14,6 +13,7 @@ import pl.touk.widerest.api.orders.fulfillments.FulfillmentConverter;
 import pl.touk.widerest.api.orders.payments.OrderPaymentConverter;
 import pl.touk.widerest.api.orders.payments.PaymentController;
 import pl.touk.widerest.hal.EmbeddedResource;
+import pl.touk.widerest.hal.LinkTemplate;
 
 import javax.annotation.Resource;
 import java.util.Collection;
@@ -25,12 +25,18 @@ import java.util.stream.Collectors;
 
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
-import static org.springframework.hateoas.mvc.ControllerLinkBuilder.linkTo;
-import static org.springframework.hateoas.mvc.ControllerLinkBuilder.methodOn;
+import static pl.touk.widerest.hal.LinkTemplates.linkTemplate;
 
 @Component
 public class OrderConverter implements Converter<Order, OrderDto> {
 
+    private static final LinkTemplate ORDER_LINK = linkTemplate(OrderController.class, "getOrderById");
+    private static final LinkTemplate CUSTOMER_LINK = linkTemplate(CustomerController.class, "readOneCustomer");
+    private static final LinkTemplate ITEMS_LINK = linkTemplate(OrderController.class, "getAllItemsInOrder");
+    private static final LinkTemplate FULFILLMENTS_LINK = linkTemplate(FulfillmentController.class, "getOrderFulfillments");
+    private static final LinkTemplate STATUS_LINK = linkTemplate(OrderController.class, "getOrderStatusById");
+    private static final LinkTemplate PAYMENT_LINK = linkTemplate(PaymentController.class, "initiatePayment");
+
     public static final String REL_ITEMS = "items";
     public static final String REL_FULFILLMENTS = "fulfillments";
     public static final String REL_STATUS = "status";
@@ -93,17 +99,15 @@ public class OrderConverter implements Converter<Order, OrderDto> {
                     .ifPresent(orderDto::add);
         }
 
-        orderDto.add(ControllerLinkBuilder.linkTo(methodOn(OrderController.class).getOrderById(null, order.getId(), null, null)).withSelfRel());
+        orderDto.add(ORDER_LINK.linkTo(order.getId()).withSelfRel());
 
         if (link) {
-            orderDto.add(linkTo(
-                    methodOn(CustomerController.class).readOneCustomer(null, String.valueOf(order.getCustomer().getId()), null, null)
-            ).withRel("customer"));
-
-            orderDto.add(linkTo(methodOn(OrderController.class).getAllItemsInOrder(null, order.getId(), null, null)).withRel(REL_ITEMS));
-            orderDto.add(linkTo(methodOn(FulfillmentController.class).getOrderFulfillments(null, order.getId(), null, null)).withRel(REL_FULFILLMENTS));
-            orderDto.add(linkTo(methodOn(OrderController.class).getOrderStatusById(null, order.getId())).withRel(REL_STATUS));
-            orderDto.add(linkTo(methodOn(PaymentController.class).initiatePayment(null, null, order.getId())).withRel(REL_PAYMENT));
+            orderDto.add(CUSTOMER_LINK.linkTo(String.valueOf(order.getCustomer().getId())).withRel("customer"));
+
+            orderDto.add(ITEMS_LINK.linkTo(order.getId()).withRel(REL_ITEMS));
+            orderDto.add(FULFILLMENTS_LINK.linkTo(order.getId()).withRel(REL_FULFILLMENTS));
+            orderDto.add(STATUS_LINK.linkTo(order.getId()).withRel(REL_STATUS));
+            orderDto.add(PAYMENT_LINK.linkTo(order.getId()).withRel(REL_PAYMENT));
         }
 
         return orderDto;
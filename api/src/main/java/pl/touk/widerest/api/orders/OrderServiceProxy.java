@@ -8,14 +8,12 @@ import org.broadleafcommerce.core.order.service.call.OrderItemRequestDTO;
 import org.broadleafcommerce.core.order.service.exception.RemoveFromCartException;
 import org.broadleafcommerce.core.order.service.exception.UpdateCartException;
 import org.broadleafcommerce.openadmin.server.security.service.AdminUserDetails;
-import org.broadleafcommerce.profile.core.service.CustomerService;
 import org.broadleafcommerce.profile.core.service.CustomerUserDetails;
 import org.springframework.security.access.prepost.PostAuthorize;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import pl.touk.widerest.api.common.ResourceNotFoundException;
-import pl.touk.widerest.api.customers.CustomerNotFoundException;
 
 import javax.annotation.Resource;
 import javax.persistence.EntityManager;
@@ -23,13 +21,14 @@ import javax.persistence.PersistenceContext;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 
-import static java.lang.String.format;
 import static javaslang.API.$;
 import static javaslang.API.Case;
 import static javaslang.API.Match;
@@ -42,42 +41,77 @@ public class OrderServiceProxy {
     @Resource(name = "blOrderService")
     private OrderService orderService;
 
-    @Resource(name = "blCustomerService")
-    private CustomerService customerService;
-
     @PersistenceContext(unitName = "blPU")
     protected EntityManager em;
 
     @PostAuthorize("permitAll")
     @Transactional
-    public List<Order> getOrdersByCustomer(final UserDetails userDetails) throws CustomerNotFoundException {
+    public List<Order> getOrdersByCustomer(final UserDetails userDetails, final String status, final int limit, final int offset) {
         return Match(userDetails).of(
-                Case(instanceOf(AdminUserDetails.class), this::getAllOrders),
+                Case(instanceOf(AdminUserDetails.class), () -> getAllOrders(status, limit, offset)),
                 Case(instanceOf(CustomerUserDetails.class), () -> {
                     final Long id = ((CustomerUserDetails) userDetails).getId();
-                    List<Order> orders = Optional.ofNullable(customerService.readCustomerById(id))
-                            .map(c -> orderService.findOrdersForCustomer(c))
-                            .orElseThrow(() -> new CustomerNotFoundException(format("Cannot find customer with ID: %d",
-                                    id)));
-                    return orders;
+                    final CriteriaBuilder builder = this.em.getCriteriaBuilder();
+                    final CriteriaQuery<Order> criteria = builder.createQuery(Order.class);
+                    final Root<OrderImpl> order = criteria.from(OrderImpl.class);
+                    criteria.select(order)
+                            .where(ordersMatching(builder, order, id, status))
+                            .orderBy(builder.asc(order.get("id")));
+                    return page(this.em.createQuery(criteria), limit, offset).getResultList();
                 }),
                 Case($(), Collections::emptyList)
         );
     }
 
+    @PostAuthorize("permitAll")
+    @Transactional
+    public long getOrdersCountByCustomer(final UserDetails userDetails, final String status) {
+        return Match(userDetails).of(
+                Case(instanceOf(AdminUserDetails.class), () -> countOrders(null, status)),
+                Case(instanceOf(CustomerUserDetails.class), () -> countOrders(((CustomerUserDetails) userDetails).getId(), status)),
+                Case($(), () -> 0L)
+        );
+    }
+
     @PostAuthorize("hasAuthority('PERMISSION_ALL_ORDER')")
     @Transactional
-    public List<Order> getAllOrders() {
+    public List<Order> getAllOrders(final String status, final int limit, final int offset) {
         final CriteriaBuilder builder = this.em.getCriteriaBuilder();
-        final CriteriaQuery criteria = builder.createQuery(Order.class);
-        Root order = criteria.from(OrderImpl.class);
-        criteria.select(order);
-        TypedQuery query = this.em.createQuery(criteria);
+        final CriteriaQuery<Order> criteria = builder.createQuery(Order.class);
+        final Root<OrderImpl> order = criteria.from(OrderImpl.class);
+        criteria.select(order)
+                .where(ordersMatching(builder, order, null, status))
+                .orderBy(builder.asc(order.get("id")));
+        final TypedQuery<Order> query = page(this.em.createQuery(criteria), limit, offset);
         query.setHint("org.hibernate.cacheable", Boolean.valueOf(true));
         query.setHint("org.hibernate.cacheRegion", "query.Order");
         return query.getResultList();
     }
 
+    private long countOrders(final Long customerId, final String status) {
+        final CriteriaBuilder builder = this.em.getCriteriaBuilder();
+        final CriteriaQuery<Long> criteria = builder.createQuery(Long.class);
+        final Root<OrderImpl> order = criteria.from(OrderImpl.class);
+        criteria.select(builder.count(order)).where(ordersMatching(builder, order, customerId, status));
+        return this.em.createQuery(criteria).getSingleResult();
+    }
+
+    private Predicate[] ordersMatching(final CriteriaBuilder builder, final Root<OrderImpl> order, final Long customerId, final String status) {
+        final List<Predicate> predicates = new ArrayList<>();
+        Optional.ofNullable(customerId).ifPresent(id -> predicates.add(builder.equal(order.get("customer").get("id"), id)));
+        Optional.ofNullable(status).ifPresent(type -> predicates.add(builder.equal(order.get("status"), type)));
+        return predicates.toArray(new Predicate[predicates.size()]);
+    }
+
+    /* Same convention as CatalogUtils.getSublistForOffset: limit <= 0 means unlimited */
+    private static <T> TypedQuery<T> page(final TypedQuery<T> query, final int limit, final int offset) {
+        query.setFirstResult(Math.max(offset, 0));
+        if (limit > 0) {
+            query.setMaxResults(limit);
+        }
+        return query;
+    }
+
     @Transactional
     public Optional<Order> getProperCart(UserDetails userDetails, Long orderId) {
         return Match(userDetails).option(
@@ -94,11 +128,15 @@ public class OrderServiceProxy {
     }
 
     public Order getOrderForCustomerById(CustomerUserDetails customerUserDetails, Long orderId) throws OrderNotFoundException {
+        final CriteriaBuilder builder = this.em.getCriteriaBuilder();
+        final CriteriaQuery<Order> criteria = builder.createQuery(Order.class);
+        final Root<OrderImpl> order = criteria.from(OrderImpl.class);
+        criteria.select(order).where(
+                builder.equal(order.get("id"), orderId),
+                builder.equal(order.get("customer").get("id"), customerUserDetails.getId())
+        );
 
-        return Optional.ofNullable(getOrdersByCustomer(customerUserDetails))
-                .orElseThrow(() -> new OrderNotFoundException("Cannot find order with ID: " + orderId + " for customer with ID: " + customerUserDetails.getId()))
-                .stream()
-                .filter(x -> x.getId().equals(orderId))
+        return this.em.createQuery(criteria).getResultList().stream()
                 .findAny()
                 .orElseThrow(() -> new OrderNotFoundException("Cannot find order with ID: " + orderId + " for customer with ID: " + customerUserDetails.getId()));
     }
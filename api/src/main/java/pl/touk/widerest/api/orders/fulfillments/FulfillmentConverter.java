@@ -12,6 +12,7 @@ import org.springframework.stereotype.Component;
 import pl.touk.widerest.api.Converter;
 import pl.touk.widerest.api.common.AddressConverter;
 import pl.touk.widerest.api.orders.OrderController;
+import pl.touk.widerest.hal.LinkTemplate;
 
 import javax.annotation.Resource;
 import java.util.Collections;
@@ -19,12 +20,14 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
-import static org.springframework.hateoas.mvc.ControllerLinkBuilder.linkTo;
-import static org.springframework.hateoas.mvc.ControllerLinkBuilder.methodOn;
+import static pl.touk.widerest.hal.LinkTemplates.linkTemplate;
 
 @Component
 public class FulfillmentConverter implements Converter<FulfillmentGroup, FulfillmentDto> {
 
+    private static final LinkTemplate ITEM_LINK = linkTemplate(OrderController.class, "getOneItemFromOrder");
+    private static final LinkTemplate FULFILLMENT_LINK = linkTemplate(FulfillmentController.class, "getOrderFulfillmentById");
+
     @Resource
     private AddressConverter addressConverter;
 
@@ -54,8 +57,7 @@ public class FulfillmentConverter implements Converter<FulfillmentGroup, Fulfill
 
         fulfillmentDto.setItemHrefs(
                 Optional.ofNullable(fulfillmentGroup.getFulfillmentGroupItems()).orElse(Collections.emptyList()).stream()
-                        .map(fulfillmentGroupItem -> linkTo(methodOn(OrderController.class)
-                                .getOneItemFromOrder(null, fulfillmentGroup.getOrder().getId(), fulfillmentGroupItem.getOrderItem().getId(), null, null)).toUri().toASCIIString())
+                        .map(fulfillmentGroupItem -> ITEM_LINK.linkTo(fulfillmentGroup.getOrder().getId(), fulfillmentGroupItem.getOrderItem().getId()).toUri().toASCIIString())
                         .collect(Collectors.toList())
         );
 
@@ -75,7 +77,7 @@ public class FulfillmentConverter implements Converter<FulfillmentGroup, Fulfill
 
         /* HATEOAS links */
 
-        fulfillmentDto.add(linkTo(methodOn(FulfillmentController.class).getOrderFulfillmentById(null, fulfillmentGroup.getOrder().getId(), fulfillmentGroup.getId(), null, null)).withSelfRel());
+        fulfillmentDto.add(FULFILLMENT_LINK.linkTo(fulfillmentGroup.getOrder().getId(), fulfillmentGroup.getId()).withSelfRel());
         return fulfillmentDto;
     }
 
@@ -0,0 +1,142 @@
+package pl.touk.widerest.api.orders.fulfillments;
+
+import org.broadleafcommerce.common.currency.domain.BroadleafCurrency;
+import org.broadleafcommerce.common.currency.util.BroadleafCurrencyUtils;
+import org.broadleafcommerce.common.money.Money;
+import org.broadleafcommerce.common.util.WeightUnitOfMeasureType;
+import org.broadleafcommerce.core.order.domain.FulfillmentOption;
+import org.broadleafcommerce.core.order.fulfillment.domain.BandedPriceFulfillmentOption;
+import org.broadleafcommerce.core.order.fulfillment.domain.BandedWeightFulfillmentOption;
+import org.broadleafcommerce.core.order.fulfillment.domain.FixedPriceFulfillmentOption;
+import org.broadleafcommerce.core.order.fulfillment.domain.FulfillmentBand;
+import org.broadleafcommerce.core.order.fulfillment.domain.FulfillmentPriceBand;
+import org.broadleafcommerce.core.order.fulfillment.domain.FulfillmentWeightBand;
+import org.broadleafcommerce.core.order.service.type.FulfillmentBandResultAmountType;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+    Prices of fixed price and banded (by price or by weight) fulfillment options for a bunch of items, computed
+    the way FixedPriceFulfillmentPricingProvider and BandedFulfillmentPricingProvider do it, but without a fulfillment
+    group, order and order items to read them from.
+
+    Any other kind of option needs a FulfillmentPricingProvider of its own - check canEstimate() first.
+ */
+@Component
+public class FulfillmentCostEstimator {
+
+    private static final BigDecimal POUNDS_PER_KILOGRAM = new BigDecimal("2.2046226218");
+
+    public boolean canEstimate(final FulfillmentOption option) {
+        return option instanceof FixedPriceFulfillmentOption
+                || option instanceof BandedPriceFulfillmentOption
+                || option instanceof BandedWeightFulfillmentOption;
+    }
+
+    public Map<FulfillmentOption, Money> estimate(final Collection<FulfillmentCostItem> items,
+                                                  final Collection<? extends FulfillmentOption> options,
+                                                  final BroadleafCurrency currency) {
+        final Map<FulfillmentOption, Money> prices = new HashMap<>();
+
+        for (FulfillmentOption option : options) {
+            if (option instanceof FixedPriceFulfillmentOption) {
+                prices.put(option, ((FixedPriceFulfillmentOption) option).getPrice());
+            } else if (option instanceof BandedPriceFulfillmentOption) {
+                prices.put(option, estimateBanded(items, option, ((BandedPriceFulfillmentOption) option).getBands(), currency));
+            } else if (option instanceof BandedWeightFulfillmentOption) {
+                prices.put(option, estimateBanded(items, option, ((BandedWeightFulfillmentOption) option).getBands(), currency));
+            }
+        }
+
+        return prices;
+    }
+
+    protected Money estimateBanded(final Collection<FulfillmentCostItem> items, final FulfillmentOption option,
+                                   final List<? extends FulfillmentBand> bands, final BroadleafCurrency currency) {
+        if (bands == null || bands.isEmpty()) {
+            throw new IllegalStateException("There were no Fulfillment Price Bands configured for a BandedPriceFulfillmentOption with ID: " + option.getId());
+        }
+
+        BigDecimal retailTotal = BigDecimal.ZERO;
+        BigDecimal flatTotal = BigDecimal.ZERO;
+        BigDecimal weightTotal = BigDecimal.ZERO;
+        boolean foundCandidateForBand = false;
+
+        for (FulfillmentCostItem item : items) {
+            final BigDecimal flatRate = Boolean.TRUE.equals(option.getUseFlatRates()) ? item.getFlatRates().get(option) : null;
+
+            if (flatRate != null) {
+                flatTotal = flatTotal.add(flatRate);
+            } else {
+                foundCandidateForBand = true;
+                retailTotal = retailTotal.add(item.getPrice().getAmount().multiply(BigDecimal.valueOf(item.getQuantity())));
+                if (item.getWeight() != null) {
+                    weightTotal = weightTotal.add(inPounds(item.getWeight(), item.getWeightUnitOfMeasure()).multiply(BigDecimal.valueOf(item.getQuantity())));
+                }
+            }
+        }
+
+        BigDecimal lowestBandPrice = null;
+        BigDecimal lowestBandMinimumAmount = BigDecimal.ZERO;
+
+        if (foundCandidateForBand) {
+            for (FulfillmentBand band : bands) {
+                BigDecimal bandMinimumAmount = BigDecimal.ZERO;
+                boolean matches = false;
+
+                if (band instanceof FulfillmentPriceBand) {
+                    bandMinimumAmount = ((FulfillmentPriceBand) band).getRetailPriceMinimumAmount();
+                    matches = retailTotal.compareTo(bandMinimumAmount) >= 0;
+                } else if (band instanceof FulfillmentWeightBand) {
+                    bandMinimumAmount = ((FulfillmentWeightBand) band).getMinimumWeight();
+                    matches = weightTotal.compareTo(bandMinimumAmount) >= 0;
+                }
+
+                if (!matches) {
+                    continue;
+                }
+
+                final BigDecimal bandPrice;
+                if (FulfillmentBandResultAmountType.RATE.equals(band.getResultAmountType())) {
+                    bandPrice = band.getResultAmount();
+                } else if (FulfillmentBandResultAmountType.PERCENTAGE.equals(band.getResultAmountType())) {
+                    bandPrice = retailTotal.multiply(band.getResultAmount());
+                } else {
+                    bandPrice = null;
+                }
+
+                if (bandPrice == null) {
+                    throw new IllegalStateException("Bands must have a non-null fulfillment price");
+                }
+
+                /* the band with the highest matching minimum wins, the cheaper one of two with the same minimum */
+                if (lowestBandPrice == null) {
+                    lowestBandPrice = bandPrice;
+                    lowestBandMinimumAmount = bandMinimumAmount;
+                }
+                if (bandMinimumAmount.compareTo(lowestBandMinimumAmount) == 0) {
+                    if (bandPrice.compareTo(lowestBandPrice) < 0) {
+                        lowestBandPrice = bandPrice;
+                    }
+                } else if (bandMinimumAmount.compareTo(lowestBandMinimumAmount) > 0) {
+                    lowestBandPrice = bandPrice;
+                    lowestBandMinimumAmount = bandMinimumAmount;
+                }
+            }
+        }
+
+        return BroadleafCurrencyUtils.getMoney(
+                (lowestBandPrice != null ? lowestBandPrice : BigDecimal.ZERO).add(flatTotal),
+                currency
+        );
+    }
+
+    protected static BigDecimal inPounds(final BigDecimal weight, final WeightUnitOfMeasureType unit) {
+        return WeightUnitOfMeasureType.KILOGRAMS.equals(unit) ? weight.multiply(POUNDS_PER_KILOGRAM) : weight;
+    }
+}
@@ -0,0 +1,54 @@
+package pl.touk.widerest.api.orders.fulfillments;
+
+import lombok.Builder;
+import lombok.Value;
+import org.broadleafcommerce.common.money.Money;
+import org.broadleafcommerce.common.util.WeightUnitOfMeasureType;
+import org.broadleafcommerce.core.catalog.domain.Dimension;
+import org.broadleafcommerce.core.catalog.domain.Sku;
+import org.broadleafcommerce.core.catalog.domain.Weight;
+import org.broadleafcommerce.core.order.domain.FulfillmentOption;
+import org.broadleafcommerce.core.order.service.type.FulfillmentType;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+
+/*
+    What FulfillmentCostEstimator needs to know about an item - the same values the pricing providers would read
+    through FulfillmentGroupItem -> DiscreteOrderItem -> Sku.
+ */
+@Value
+@Builder
+public class FulfillmentCostItem {
+
+    private Money price;
+
+    private int quantity;
+
+    private BigDecimal weight;
+
+    private WeightUnitOfMeasureType weightUnitOfMeasure;
+
+    private Dimension dimension;
+
+    private FulfillmentType fulfillmentType;
+
+    /* Not copied - Sku.getFulfillmentFlatRates() is lazy and only needed for options which use flat rates */
+    private Map<FulfillmentOption, BigDecimal> flatRates;
+
+    public static FulfillmentCostItem of(final Sku sku, final int quantity) {
+        final Optional<Weight> weight = Optional.ofNullable(sku.getWeight());
+
+        return FulfillmentCostItem.builder()
+                .price(sku.getPrice())
+                .quantity(quantity)
+                .weight(weight.map(Weight::getWeight).orElse(null))
+                .weightUnitOfMeasure(weight.map(Weight::getWeightUnitOfMeasure).orElse(null))
+                .dimension(sku.getDimension())
+                .fulfillmentType(sku.getFulfillmentType())
+                .flatRates(Optional.ofNullable(sku.getFulfillmentFlatRates()).orElse(Collections.emptyMap()))
+                .build();
+    }
+}
@@ -0,0 +1,235 @@
+package pl.touk.widerest.api.orders.fulfillments;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.broadleafcommerce.common.currency.domain.BroadleafCurrency;
+import org.broadleafcommerce.common.locale.domain.Locale;
+import org.broadleafcommerce.common.money.Money;
+import org.broadleafcommerce.common.vendor.service.exception.FulfillmentPriceException;
+import org.broadleafcommerce.common.web.BroadleafRequestContext;
+import org.broadleafcommerce.core.catalog.domain.Category;
+import org.broadleafcommerce.core.catalog.domain.Product;
+import org.broadleafcommerce.core.catalog.domain.Sku;
+import org.broadleafcommerce.core.order.domain.FulfillmentOption;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCollectionRecreateEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionRemoveEvent;
+import org.hibernate.event.spi.PostCollectionRemoveEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import pl.touk.widerest.api.common.HibernateListeners;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnit;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Estimated fulfillment option prices, by product or by fulfillment type, as embedded into product and
+    category representations.
+
+    Prices depend on the currency (and locale) of the request, so both are a part of the key. The region is bounded
+    by size and TTL. Committed changes of fulfillment options (or their price bands) drop everything. Changes of a
+    SKU or a product drop the entries of that product, and changes of a category drop all product entries, since a
+    product's options follow the fulfillment type of its category. Collection events (e.g. the excluded options of
+    a SKU) are not post-commit in Hibernate - those drop entries once the surrounding transaction commits.
+ */
+@Component
+@ManagedResource(objectName = "pl.touk.widerest:type=FulfillmentOptionsCache")
+public class FulfillmentOptionsCache implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener,
+        PostCollectionRecreateEventListener, PostCollectionUpdateEventListener, PostCollectionRemoveEventListener {
+
+    private static final String FULFILLMENT_PACKAGE = "org.broadleafcommerce.core.order.fulfillment.";
+
+    private static final String PRODUCT = "product";
+    private static final String FULFILLMENT_TYPE = "fulfillmentType";
+
+    @Value("${widerest.fulfillment-options-cache.size:10000}")
+    protected long maximumSize;
+
+    @Value("${widerest.fulfillment-options-cache.ttl:600}")
+    protected long timeToLiveSeconds;
+
+    @PersistenceUnit(unitName = "blPU")
+    protected EntityManagerFactory entityManagerFactory;
+
+    private Cache<List<Object>, Map<? extends FulfillmentOption, Money>> prices;
+
+    @FunctionalInterface
+    public interface PriceEstimation {
+        Map<? extends FulfillmentOption, Money> estimate() throws FulfillmentPriceException;
+    }
+
+    @PostConstruct
+    public void init() {
+        prices = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLiveSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+
+        HibernateListeners.register(entityManagerFactory, this,
+                EventType.POST_COMMIT_INSERT,
+                EventType.POST_COMMIT_UPDATE,
+                EventType.POST_COMMIT_DELETE,
+                EventType.POST_COLLECTION_RECREATE,
+                EventType.POST_COLLECTION_UPDATE,
+                EventType.POST_COLLECTION_REMOVE);
+    }
+
+    public Map<? extends FulfillmentOption, Money> getForProduct(final Long productId, final PriceEstimation estimation) throws FulfillmentPriceException {
+        return get(key(PRODUCT, productId), estimation);
+    }
+
+    public Map<? extends FulfillmentOption, Money> getForFulfillmentType(final String fulfillmentType, final PriceEstimation estimation) throws FulfillmentPriceException {
+        return get(key(FULFILLMENT_TYPE, fulfillmentType), estimation);
+    }
+
+    protected Map<? extends FulfillmentOption, Money> get(final List<Object> key, final PriceEstimation estimation) throws FulfillmentPriceException {
+        try {
+            return prices.get(key, estimation::estimate);
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof FulfillmentPriceException) {
+                throw (FulfillmentPriceException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new FulfillmentPriceException(e.getMessage(), e.getCause());
+        }
+    }
+
+    /* [kind, id, currency, locale] - the currency and locale as set up for the current request */
+    protected static List<Object> key(final String kind, final Object id) {
+        final Optional<BroadleafRequestContext> context = Optional.ofNullable(BroadleafRequestContext.getBroadleafRequestContext());
+
+        return Arrays.asList(
+                kind,
+                id,
+                context.map(BroadleafRequestContext::getBroadleafCurrency).map(BroadleafCurrency::getCurrencyCode).orElse(null),
+                context.map(BroadleafRequestContext::getLocale).map(Locale::getLocaleCode).orElse(null)
+        );
+    }
+
+    @ManagedOperation
+    public void invalidateAll() {
+        prices.invalidateAll();
+    }
+
+    public void invalidateProduct(final Long productId) {
+        prices.asMap().keySet().removeIf(key -> PRODUCT.equals(key.get(0)) && Objects.equals(productId, key.get(1)));
+    }
+
+    public void invalidateProducts() {
+        prices.asMap().keySet().removeIf(key -> PRODUCT.equals(key.get(0)));
+    }
+
+    @ManagedAttribute
+    public long getHitCount() {
+        return prices.stats().hitCount();
+    }
+
+    @ManagedAttribute
+    public long getMissCount() {
+        return prices.stats().missCount();
+    }
+
+    @ManagedAttribute
+    public double getHitRate() {
+        return prices.stats().hitRate();
+    }
+
+    @ManagedAttribute
+    public long getEvictionCount() {
+        return prices.stats().evictionCount();
+    }
+
+    @ManagedAttribute
+    public long getSize() {
+        return prices.size();
+    }
+
+    @Override
+    public void onPostInsert(final PostInsertEvent event) {
+        onChange(event.getEntity());
+    }
+
+    @Override
+    public void onPostUpdate(final PostUpdateEvent event) {
+        onChange(event.getEntity());
+    }
+
+    @Override
+    public void onPostDelete(final PostDeleteEvent event) {
+        onChange(event.getEntity());
+    }
+
+    @Override
+    public void onPostRecreateCollection(final PostCollectionRecreateEvent event) {
+        onCollectionChange(event);
+    }
+
+    @Override
+    public void onPostUpdateCollection(final PostCollectionUpdateEvent event) {
+        onCollectionChange(event);
+    }
+
+    @Override
+    public void onPostRemoveCollection(final PostCollectionRemoveEvent event) {
+        onCollectionChange(event);
+    }
+
+    protected void onCollectionChange(final AbstractCollectionEvent event) {
+        if (event.getAffectedOwnerOrNull() instanceof Sku) {
+            final Optional<Long> productId = Optional.ofNullable(((Sku) event.getAffectedOwnerOrNull()).getProduct()).map(Product::getId);
+            invalidateAfterCommit(() -> productId.ifPresent(this::invalidateProduct));
+        }
+    }
+
+    protected void invalidateAfterCommit(final Runnable invalidate) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    invalidate.run();
+                }
+            });
+        } else {
+            invalidate.run();
+        }
+    }
+
+    protected void onChange(final Object entity) {
+        if (entity instanceof FulfillmentOption || entity.getClass().getName().startsWith(FULFILLMENT_PACKAGE)) {
+            invalidateAll();
+        } else if (entity instanceof Category) {
+            invalidateProducts();
+        } else if (entity instanceof Product) {
+            invalidateProduct(((Product) entity).getId());
+        } else if (entity instanceof Sku) {
+            Optional.ofNullable(((Sku) entity).getProduct()).map(Product::getId).ifPresent(this::invalidateProduct);
+        }
+    }
+}
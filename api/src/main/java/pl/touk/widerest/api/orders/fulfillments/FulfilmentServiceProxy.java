@@ -1,5 +1,6 @@
 package pl.touk.widerest.api.orders.fulfillments;
 
+import org.broadleafcommerce.common.currency.domain.BroadleafCurrency;
 import org.broadleafcommerce.common.money.Money;
 import org.broadleafcommerce.common.vendor.service.exception.FulfillmentPriceException;
 import org.broadleafcommerce.common.web.BroadleafRequestContext;
@@ -20,11 +21,10 @@ import org.broadleafcommerce.core.order.service.FulfillmentOptionService;
 import org.broadleafcommerce.core.order.service.type.FulfillmentType;
 import org.broadleafcommerce.core.order.service.type.OrderItemType;
 import org.broadleafcommerce.core.pricing.service.FulfillmentPricingService;
-import org.springframework.cache.annotation.CacheConfig;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Resource;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -32,9 +32,14 @@ import java.util.Optional;
 import java.util.Set;
 
 @Service
-@CacheConfig(cacheNames = "fulfillmentOptions")
 public class FulfilmentServiceProxy {
 
+    @Resource
+    protected FulfillmentOptionsCache fulfillmentOptionsCache;
+
+    @Resource
+    protected FulfillmentCostEstimator fulfillmentCostEstimator;
+
     @Resource(name = "blFulfillmentOptionService")
     protected FulfillmentOptionService fulfillmentOptionService;
 
@@ -56,17 +61,22 @@ public class FulfilmentServiceProxy {
     @Resource(name = "blFulfillmentGroupItemDao")
     private FulfillmentGroupItemDao fulfillmentGroupItemDao;
 
-    @Cacheable(key="#type?.type ?: '_null_'")
     public Map<? extends FulfillmentOption, Money> readFulfillmentOptionsWithPricesAvailableByFulfillmentType(FulfillmentType type) throws FulfillmentPriceException {
-        final List<FulfillmentOption> fulfillmentOptions = type != null
-                ? fulfillmentOptionService.readAllFulfillmentOptionsByFulfillmentType(type)
-                : fulfillmentOptionService.readAllFulfillmentOptions();
+        return fulfillmentOptionsCache.getForFulfillmentType(type != null ? type.getType() : null, () -> {
+            final List<FulfillmentOption> fulfillmentOptions = type != null
+                    ? fulfillmentOptionService.readAllFulfillmentOptionsByFulfillmentType(type)
+                    : fulfillmentOptionService.readAllFulfillmentOptions();
 
 
-        return fulfillmentPricingService.estimateCostForFulfillmentGroup(
-                createTemporaryFulfillmentGroup(),
-                new HashSet<>(fulfillmentOptions)
-        ).getFulfillmentOptionPrices();
+            if (fulfillmentOptions.stream().allMatch(fulfillmentCostEstimator::canEstimate)) {
+                return fulfillmentCostEstimator.estimate(Collections.emptyList(), fulfillmentOptions, currentCurrency());
+            }
+
+            return fulfillmentPricingService.estimateCostForFulfillmentGroup(
+                    createTemporaryFulfillmentGroup(),
+                    new HashSet<>(fulfillmentOptions)
+            ).getFulfillmentOptionPrices();
+        });
     }
 
     public Map<? extends FulfillmentOption, Money> readFulfillmentOptionsWithPricesAvailableForProductsInFulfillmentGroup(FulfillmentGroup fulfillmentGroup) throws FulfillmentPriceException {
@@ -76,19 +86,34 @@ public class FulfilmentServiceProxy {
         ).getFulfillmentOptionPrices();
     }
 
-    @Cacheable(key="#product?.id")
     public Map<? extends FulfillmentOption, Money> readFulfillmentOptionsWithPricesAvailableForProduct(Product product) throws FulfillmentPriceException {
-        final List<FulfillmentOption> fulfillmentOptions = Optional.ofNullable(product.getCategory())
-                .map(Category::getFulfillmentType)
-                .map(fulfillmentOptionService::readAllFulfillmentOptionsByFulfillmentType)
-                .orElseGet(fulfillmentOptionService::readAllFulfillmentOptions);
-
-        fulfillmentOptions.removeAll(product.getDefaultSku().getExcludedFulfillmentOptions());
+        return fulfillmentOptionsCache.getForProduct(product.getId(), () -> {
+            final List<FulfillmentOption> fulfillmentOptions = Optional.ofNullable(product.getCategory())
+                    .map(Category::getFulfillmentType)
+                    .map(fulfillmentOptionService::readAllFulfillmentOptionsByFulfillmentType)
+                    .orElseGet(fulfillmentOptionService::readAllFulfillmentOptions);
+
+            fulfillmentOptions.removeAll(product.getDefaultSku().getExcludedFulfillmentOptions());
+
+            if (fulfillmentOptions.stream().allMatch(fulfillmentCostEstimator::canEstimate)) {
+                return fulfillmentCostEstimator.estimate(
+                        Collections.singletonList(FulfillmentCostItem.of(product.getDefaultSku(), 1)),
+                        new HashSet<>(fulfillmentOptions),
+                        currentCurrency()
+                );
+            }
+
+            return fulfillmentPricingService.estimateCostForFulfillmentGroup(
+                    createTemporaryFulfillmentGroupWithSingleItem(product),
+                    new HashSet<>(fulfillmentOptions)
+            ).getFulfillmentOptionPrices();
+        });
+    }
 
-        return fulfillmentPricingService.estimateCostForFulfillmentGroup(
-                createTemporaryFulfillmentGroupWithSingleItem(product),
-                new HashSet<>(fulfillmentOptions)
-        ).getFulfillmentOptionPrices();
+    private BroadleafCurrency currentCurrency() {
+        return Optional.ofNullable(BroadleafRequestContext.getBroadleafRequestContext())
+                .map(BroadleafRequestContext::getBroadleafCurrency)
+                .orElse(null);
     }
 
     private FulfillmentGroup createTemporaryFulfillmentGroup() {
@@ -0,0 +1,32 @@
+package pl.touk.widerest.api.products;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+@ApiModel(value = "ProductBatchResult", description = "Result of adding a single product of a batch")
+public class ProductBatchResultDto {
+
+    @ApiModelProperty(position = 0, value = "Position of the product in the request", required = true, dataType = "java.lang.Integer")
+    private int index;
+
+    @ApiModelProperty(position = 1, value = "HTTP status the product would have got from POST /products", required = true, dataType = "java.lang.Integer")
+    private int status;
+
+    @ApiModelProperty(position = 2, value = "URL of the newly created product", dataType = "java.lang.String")
+    private String location;
+
+    @ApiModelProperty(position = 3, value = "Reasons why the product has not been added")
+    private List<String> errors;
+}
@@ -1,10 +1,17 @@
 package pl.touk.widerest.api.products;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.common.collect.Lists;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
+import javaslang.control.Try;
 import org.apache.commons.lang.StringUtils;
 import org.broadleafcommerce.common.exception.ServiceException;
 import org.broadleafcommerce.common.media.domain.Media;
@@ -22,8 +29,12 @@ import org.broadleafcommerce.core.catalog.service.CatalogService;
 import org.broadleafcommerce.core.search.domain.SearchCriteria;
 import org.broadleafcommerce.core.search.domain.SearchResult;
 import org.broadleafcommerce.core.search.service.SearchService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.hateoas.Link;
 import org.springframework.hateoas.MediaTypes;
 import org.springframework.hateoas.Resources;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.transaction.annotation.Transactional;
@@ -32,18 +43,32 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import pl.touk.widerest.api.categories.CategoryConverter;
 import pl.touk.widerest.api.categories.CategoryDto;
+import pl.touk.widerest.api.common.CatalogETags;
 import pl.touk.widerest.api.common.CatalogUtils;
+import pl.touk.widerest.api.common.KeysetCursor;
 import pl.touk.widerest.api.common.MediaConverter;
 import pl.touk.widerest.api.common.MediaDto;
 import pl.touk.widerest.api.common.ResourceNotFoundException;
+import pl.touk.widerest.hal.LinkTemplate;
 import pl.touk.widerest.security.oauth2.ResourceServerConfig;
+import springfox.documentation.annotations.ApiIgnore;
 
 import javax.annotation.Resource;
+import javax.servlet.http.HttpServletResponse;
+import javax.validation.ConstraintViolation;
 import javax.validation.Valid;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -54,12 +79,17 @@ import java.util.function.Function;
 import static java.util.stream.Collectors.toList;
 import static org.springframework.hateoas.mvc.ControllerLinkBuilder.linkTo;
 import static org.springframework.hateoas.mvc.ControllerLinkBuilder.methodOn;
+import static pl.touk.widerest.hal.LinkTemplates.linkTemplate;
 
 @RestController
 @RequestMapping(value = ResourceServerConfig.API_PATH + "/products", produces = { MediaTypes.HAL_JSON_VALUE })
 @Api(value = "products", description = "Product catalog endpoint", produces = MediaTypes.HAL_JSON_VALUE)
 public class ProductController {
 
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+
+    private static final LinkTemplate PRODUCT_LINK = linkTemplate(ProductController.class, "readOneProductById");
+
     @Resource(name = "blCatalogService")
     protected CatalogService catalogService;
 
@@ -78,6 +108,28 @@ public class ProductController {
     @Resource
     protected ProductConverter productConverter;
 
+    @Resource
+    protected ProductServiceProxy productServiceProxy;
+
+    @Resource(name = "_halObjectMapper")
+    protected ObjectMapper halObjectMapper;
+
+    @Resource
+    protected CatalogETags catalogETags;
+
+    @Value("${widerest.products.cache-control:no-cache}")
+    protected String cacheControl;
+
+    @Value("${widerest.products.export-batch-size:500}")
+    protected int exportBatchSize;
+
+    /* Keep in line with hibernate.jdbc.batch_size */
+    @Value("${widerest.products.batch-size:50}")
+    protected int batchSize;
+
+    @Resource
+    protected Validator validator;
+
     @Resource
     protected MediaConverter mediaConverter;
 
@@ -107,9 +159,15 @@ public class ProductController {
             @ApiParam(value = "Page number to return (applies only to searching)")
                 @RequestParam(value = "page", defaultValue = "1") final Integer page,
             @RequestParam(value = "embed", defaultValue = "false") Boolean embed,
-            @RequestParam(value = "link", defaultValue = "true") Boolean link
+            @RequestParam(value = "link", defaultValue = "true") Boolean link,
+            @ApiParam(value = "Cursor returned in the 'next' link of a previous page (empty value starts from the beginning). Takes precedence over offset, the limit is capped at web.maxPageSize")
+                @RequestParam(value = "after", required = false) final String after
     ) throws ServiceException {
 
+        if (after != null && StringUtils.isEmpty(q)) {
+            return getAllProductsAfter(after, limit, embed, link);
+        }
+
         List<Product> productsToReturn;
 
         if(StringUtils.isNotEmpty(q)) {
@@ -144,12 +202,39 @@ public class ProductController {
 
         return ResponseEntity.ok(
                 new Resources<>(
-                        productsToReturn.stream()
-                                .filter(CatalogUtils.shouldProductBeVisible)
-                                .map(product -> productConverter.createDto(product, embed, link))
-                                .collect(toList()),
+                        productConverter.createDtos(
+                                productsToReturn.stream()
+                                        .filter(CatalogUtils.shouldProductBeVisible)
+                                        .collect(toList()),
+                                embed, link
+                        ),
+
+                        linkTo(methodOn(getClass()).getAllProducts(limit, offset, q, pageSize, page, null, null, null)).withSelfRel()
+                )
+        );
+    }
+
+    private ResponseEntity<Resources<ProductDto>> getAllProductsAfter(final String after, final Integer limit, final Boolean embed, final Boolean link) {
+        /* Always a bounded page, same limits as searching */
+        final int pageLimit = (limit == null || limit <= 0)
+                ? BLCSystemProperty.resolveIntSystemProperty("web.defaultPageSize")
+                : Math.min(limit, BLCSystemProperty.resolveIntSystemProperty("web.maxPageSize"));
+        final List<Product> products =
+                productServiceProxy.findVisibleProductsAfter(KeysetCursor.decode(after).orElse(null), pageLimit);
+
+        final List<Link> links = new ArrayList<>();
+        links.add(linkTo(methodOn(getClass()).getAllProducts(limit, null, null, null, null, embed, link, after)).withSelfRel());
+
+        /* A full page means there might be more products, an empty 'next' page is fine for crawlers */
+        if (products.size() == pageLimit) {
+            final String next = KeysetCursor.encode(products.get(products.size() - 1).getId());
+            links.add(linkTo(methodOn(getClass()).getAllProducts(limit, null, null, null, null, embed, link, next)).withRel(Link.REL_NEXT));
+        }
 
-                        linkTo(methodOn(getClass()).getAllProducts(limit, offset, q, pageSize, page, null, null)).withSelfRel()
+        return ResponseEntity.ok(
+                new Resources<>(
+                        productConverter.createDtos(products, embed, link),
+                        links
                 )
         );
     }
@@ -308,6 +393,136 @@ public class ProductController {
     }
 
 
+    /* POST /products/batch */
+    @PreAuthorize("hasAuthority('PERMISSION_ALL_PRODUCT')")
+    @RequestMapping(value = "/batch", method = RequestMethod.POST)
+    @ApiOperation(
+            value = "Add many products",
+            notes = "Adds a list of new products to the catalog, in chunks. Returns a result for every product, " +
+                    "in the order of the request: either an URL to the newly added product or validation errors",
+            response = ProductBatchResultDto.class,
+            responseContainer = "List")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Products processed, see per-item results", response = ProductBatchResultDto.class, responseContainer = "List")
+    })
+    public ResponseEntity<List<ProductBatchResultDto>> addProducts(
+            @ApiParam(value = "Descriptions of new products", required = true)
+                @RequestBody final List<ProductDto> receivedProductDtos) {
+
+        final ProductBatchResultDto[] results = new ProductBatchResultDto[receivedProductDtos.size()];
+        final List<Integer> validIndexes = new ArrayList<>();
+
+        for (int i = 0; i < receivedProductDtos.size(); i++) {
+            final List<String> errors = Optional.ofNullable(receivedProductDtos.get(i))
+                    .map(productDto -> validator.validate(productDto).stream()
+                            .map(ConstraintViolation::getMessage)
+                            .collect(toList()))
+                    .orElse(Collections.singletonList("Product has to be provided"));
+
+            if (errors.isEmpty()) {
+                validIndexes.add(i);
+            } else {
+                results[i] = ProductBatchResultDto.builder().index(i).status(HttpStatus.BAD_REQUEST.value()).errors(errors).build();
+            }
+        }
+
+        for (List<Integer> chunk : Lists.partition(validIndexes, batchSize)) {
+            final Try<List<Long>> savedChunk = Try.of(() -> productServiceProxy.saveProducts(
+                    chunk.stream().map(receivedProductDtos::get).collect(toList()),
+                    productConverter::createEntity
+            ));
+
+            if (savedChunk.isSuccess()) {
+                final List<Long> productIds = savedChunk.get();
+                for (int i = 0; i < chunk.size(); i++) {
+                    results[chunk.get(i)] = createdProductResult(chunk.get(i), productIds.get(i));
+                }
+            } else {
+                /* The whole chunk has been rolled back, retry one by one to find out which products are to blame */
+                for (Integer index : chunk) {
+                    results[index] = Try.of(() -> productServiceProxy.saveProducts(
+                            Collections.singletonList(receivedProductDtos.get(index)),
+                            productConverter::createEntity
+                    ))
+                            .map(productIds -> createdProductResult(index, productIds.get(0)))
+                            .getOrElseGet(e -> failedProductResult(index, e));
+                }
+            }
+        }
+
+        return ResponseEntity.ok(Arrays.asList(results));
+    }
+
+    private static ProductBatchResultDto createdProductResult(final int index, final long productId) {
+        return ProductBatchResultDto.builder()
+                .index(index)
+                .status(HttpStatus.CREATED.value())
+                .location(PRODUCT_LINK.linkTo(productId).toUri().toASCIIString())
+                .build();
+    }
+
+    private static ProductBatchResultDto failedProductResult(final int index, final Throwable cause) {
+        final HttpStatus status = Optional.ofNullable(AnnotationUtils.findAnnotation(cause.getClass(), ResponseStatus.class))
+                .map(ResponseStatus::value)
+                .orElse(HttpStatus.CONFLICT);
+
+        return ProductBatchResultDto.builder()
+                .index(index)
+                .status(status.value())
+                .errors(Collections.singletonList(Optional.ofNullable(cause.getMessage()).orElse(status.getReasonPhrase())))
+                .build();
+    }
+
+    /* GET /products/export */
+    @Transactional(readOnly = true)
+    @PreAuthorize("permitAll")
+    @RequestMapping(value = "/export", method = RequestMethod.GET, produces = NDJSON_VALUE)
+    @ApiOperation(
+            value = "Export all products",
+            notes = "Streams all available products as newline-delimited JSON, one product per line"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successful export of products")
+    })
+    public void exportProducts(
+            @RequestParam(value = "embed", defaultValue = "false") Boolean embed,
+            @RequestParam(value = "link", defaultValue = "true") Boolean link,
+            @ApiIgnore final HttpServletResponse response
+    ) throws IOException {
+
+        response.setContentType(NDJSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        /* The HAL object mapper keeps _links the same as in regular responses, one value per line */
+        final ObjectWriter writer = halObjectMapper.writer()
+                .without(SerializationFeature.INDENT_OUTPUT)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        try (final JsonGenerator generator = halObjectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            generator.setRootValueSeparator(new SerializedString("\n"));
+
+            productServiceProxy.forEachVisibleProduct(
+                    exportBatchSize,
+                    product -> {
+                        try {
+                            writer.writeValue(generator, productConverter.createDto(product, embed, link));
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    },
+                    () -> {
+                        try {
+                            generator.flush();
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+            );
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
     /* GET /products/count */
     @Transactional
     @PreAuthorize("permitAll")
@@ -321,9 +536,7 @@ public class ProductController {
             @ApiResponse(code = 200, message = "Successful retrieval of products count")
     })
     public Long getAllProductsCount() {
-        return catalogService.findAllProducts().stream()
-                .filter(CatalogUtils.shouldProductBeVisible)
-                .count();
+        return productServiceProxy.countVisibleProducts();
     }
 
     /* GET /products/{id} */
@@ -342,12 +555,17 @@ public class ProductController {
             @ApiParam(value = "ID of a specific product", required = true)
             @PathVariable(value = "productId") final Long productId,
             @RequestParam(value = "embed", defaultValue = "false") Boolean embed,
-            @RequestParam(value = "link", defaultValue = "true") Boolean link
+            @RequestParam(value = "link", defaultValue = "true") Boolean link,
+            @ApiIgnore ServletWebRequest request
     ) {
+        final String eTag = embed ? null : catalogETags.currentETag();
+        final Product product = getProductById(productId);
 
-        return Optional.of(getProductById(productId))
-                .map(product -> productConverter.createDto(product, embed, link))
-                .get();
+        if (catalogETags.checkNotModified(request, eTag, cacheControl)) {
+            return null;
+        }
+
+        return productConverter.createDto(product, embed, link);
     }
 
     /* PUT /products/{id} */
@@ -7,9 +7,7 @@ import org.broadleafcommerce.core.catalog.service.CatalogService;
 import org.broadleafcommerce.core.catalog.service.type.ProductOptionType;
 import org.broadleafcommerce.core.catalog.service.type.ProductOptionValidationStrategyType;
 import org.broadleafcommerce.core.catalog.service.type.ProductType;
-import org.broadleafcommerce.core.inventory.service.InventoryService;
 import org.broadleafcommerce.core.inventory.service.type.InventoryType;
-import org.springframework.hateoas.mvc.ControllerLinkBuilder;
 import org.springframework.stereotype.Component;
 import pl.touk.widerest.api.Converter;
 import pl.touk.widerest.api.DtoConverters;
@@ -25,6 +23,7 @@ import pl.touk.widerest.api.products.skus.SkuConverter;
 import pl.touk.widerest.api.products.skus.SkuDto;
 import pl.touk.widerest.api.products.skus.SkuProductOptionValueDto;
 import pl.touk.widerest.hal.EmbeddedResource;
+import pl.touk.widerest.hal.LinkTemplate;
 
 import javax.annotation.Resource;
 import java.time.ZoneId;
@@ -44,11 +43,15 @@ import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
 import static java.util.stream.Collectors.toSet;
 import static java.util.stream.Stream.empty;
-import static org.springframework.hateoas.mvc.ControllerLinkBuilder.linkTo;
-import static org.springframework.hateoas.mvc.ControllerLinkBuilder.methodOn;
+import static pl.touk.widerest.hal.LinkTemplates.linkTemplate;
 
 @Component
 public class ProductConverter implements Converter<Product, ProductDto>{
+
+    private static final LinkTemplate PRODUCT_LINK = linkTemplate(ProductController.class, "readOneProductById");
+    private static final LinkTemplate SKU_LINK = linkTemplate(SkuController.class, "getSkuById");
+    private static final LinkTemplate CATEGORY_LINK = linkTemplate(CategoryController.class, "readOneCategoryById");
+    private static final LinkTemplate DEFAULT_MEDIAS_LINK = linkTemplate(ProductController.class, "getProductDefaultSkuMedias");
     
     @Resource
     protected SkuConverter skuConverter;
@@ -59,9 +62,6 @@ public class ProductConverter implements Converter<Product, ProductDto>{
     @Resource
     protected CatalogService catalogService;
 
-    @Resource
-    protected InventoryService inventoryService;
-
     @Resource
     protected FulfilmentServiceProxy fulfilmentServiceProxy;
 
@@ -70,6 +70,21 @@ public class ProductConverter implements Converter<Product, ProductDto>{
 
     @Override
     public ProductDto createDto(final Product product, final boolean embed, final boolean link) {
+        return createDto(product, embed, link, skuConverter.retrieveQuantitiesAvailable(product.getAllSkus()));
+    }
+
+    /* Quantities of all SKUs on the list are retrieved at once, see SkuConverter.retrieveQuantitiesAvailable() */
+    public List<ProductDto> createDtos(final Collection<Product> products, final boolean embed, final boolean link) {
+        final Map<Sku, Integer> quantitiesAvailable = skuConverter.retrieveQuantitiesAvailable(
+                products.stream().flatMap(product -> product.getAllSkus().stream()).collect(toList())
+        );
+
+        return products.stream()
+                .map(product -> createDto(product, embed, link, quantitiesAvailable))
+                .collect(toList());
+    }
+
+    protected ProductDto createDto(final Product product, final boolean embed, final boolean link, final Map<Sku, Integer> quantitiesAvailable) {
         final ProductDto dto = product instanceof ProductBundle ? new ProductBundleDto() : new ProductDto();
 
         dto.setName(product.getName());
@@ -79,9 +94,9 @@ public class ProductConverter implements Converter<Product, ProductDto>{
 
         dto.setRetailPrice(Optional.ofNullable(productDefaultSku.getRetailPrice()).map(Money::getAmount).orElse(null));
         dto.setSalePrice(Optional.ofNullable(productDefaultSku.getSalePrice()).map(Money::getAmount).orElse(null));
-        dto.setQuantityAvailable(inventoryService.retrieveQuantityAvailable(productDefaultSku));
+        dto.setQuantityAvailable(quantitiesAvailable.get(productDefaultSku));
         dto.setAvailability(Optional.ofNullable(productDefaultSku.getInventoryType()).map(InventoryType::getType).orElse(null));
-        dto.setIsAvailable(inventoryService.isAvailable(productDefaultSku,1));
+        dto.setIsAvailable(SkuConverter.isAvailable(quantitiesAvailable.get(productDefaultSku)));
         dto.setTaxCode(productDefaultSku.getTaxCode());
         dto.setCurrencyCode(
                 Optional.ofNullable(Money.toCurrency(productDefaultSku.getPrice())).map(Currency::toString).orElse(null));
@@ -111,7 +126,7 @@ public class ProductConverter implements Converter<Product, ProductDto>{
         dto.setOptions(product.getProductOptionXrefs().stream().map(productOptionXrefToDto).collect(toList()));
 
         dto.setSkus(product.getAdditionalSkus().stream()
-                .map(sku -> skuConverter.createDto(sku, embed, link)).collect(toList()));
+                .map(sku -> skuConverter.createDto(sku, embed, link, quantitiesAvailable)).collect(toList()));
 
         if (dto instanceof ProductBundleDto) {
             ProductBundle productBundle = (ProductBundle) product;
@@ -125,12 +140,12 @@ public class ProductConverter implements Converter<Product, ProductDto>{
             ((ProductBundleDto) dto).setPotentialSavings(productBundle.getPotentialSavings());
         }
 
-        dto.add(ControllerLinkBuilder.linkTo(methodOn(ProductController.class).readOneProductById(product.getId(), null, null)).withSelfRel());
+        dto.add(PRODUCT_LINK.linkTo(product.getId()).withSelfRel());
 
         if (link) {
 
             if (product.getDefaultSku() != null) {
-                dto.add(linkTo(methodOn(SkuController.class).getSkuById(product.getId(), product.getDefaultSku().getId(), null, null))
+                dto.add(SKU_LINK.linkTo(product.getId(), product.getDefaultSku().getId())
                         .withRel("default-sku"));
             }
 
@@ -138,7 +153,7 @@ public class ProductConverter implements Converter<Product, ProductDto>{
             if (product.getAdditionalSkus() != null && !product.getAdditionalSkus().isEmpty()) {
                 for (Sku additionalSku : product.getAdditionalSkus()) {
                     if (!additionalSku.equals(product.getDefaultSku())) {
-                        dto.add(linkTo(methodOn(SkuController.class).getSkuById(product.getId(), additionalSku.getId(), null, null))
+                        dto.add(SKU_LINK.linkTo(product.getId(), additionalSku.getId())
                                 .withRel("skus"));
 
                         //dto.add(linkTo(methodOn(ProductController.class).getMediaBySkuId(product.getId(), additionalSku.getId())).withRel("medias"));
@@ -147,15 +162,18 @@ public class ProductConverter implements Converter<Product, ProductDto>{
                 }
             }
 
-        /* Links to the product's categories */
+        /*
+            Links to the product's categories - not filtered by their active dates (as the links of a category are
+            not), the representation would change with time alone and could not be tagged
+         */
             if (product.getAllParentCategoryXrefs() != null && !product.getAllParentCategoryXrefs().isEmpty()) {
                 product.getAllParentCategoryXrefs().stream()
                         .map(CategoryProductXref::getCategory)
-                        .filter(CatalogUtils.shouldCategoryBeVisible)
-                        .forEach(x -> dto.add(linkTo(methodOn(CategoryController.class).readOneCategoryById(null, x.getId(), null, null)).withRel("category")));
+                        .filter(CatalogUtils.isNotArchived())
+                        .forEach(x -> dto.add(CATEGORY_LINK.linkTo(x.getId()).withRel("category")));
             }
 
-            dto.add(linkTo(methodOn(ProductController.class).getProductDefaultSkuMedias(product.getId())).withRel("default-medias"));
+            dto.add(DEFAULT_MEDIAS_LINK.linkTo(product.getId()).withRel("default-medias"));
         }
 
         if (embed) {
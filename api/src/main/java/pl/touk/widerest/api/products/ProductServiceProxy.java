@@ -0,0 +1,242 @@
+package pl.touk.widerest.api.products;
+
+import org.broadleafcommerce.common.time.SystemTime;
+import org.broadleafcommerce.core.catalog.domain.CategoryProductXrefImpl;
+import org.broadleafcommerce.core.catalog.domain.Product;
+import org.broadleafcommerce.core.catalog.domain.ProductImpl;
+import org.broadleafcommerce.core.catalog.domain.SkuImpl;
+import org.broadleafcommerce.core.catalog.service.CatalogService;
+import org.hibernate.CacheMode;
+import org.hibernate.Query;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import pl.touk.widerest.api.common.CatalogUtils;
+
+import javax.annotation.Resource;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.From;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static java.util.stream.Collectors.toList;
+
+@Service
+public class ProductServiceProxy {
+
+    public static final String PERMISSION_READ_PRODUCT = "PERMISSION_READ_PRODUCT";
+
+    @PersistenceContext(unitName = "blPU")
+    protected EntityManager em;
+
+    @Resource(name = "blCatalogService")
+    protected CatalogService catalogService;
+
+    public long countVisibleProducts() {
+        final CriteriaBuilder builder = em.getCriteriaBuilder();
+        final CriteriaQuery<Long> criteria = builder.createQuery(Long.class);
+        final Root<ProductImpl> product = criteria.from(ProductImpl.class);
+
+        criteria.select(builder.count(product)).where(isVisible(builder, product));
+
+        return em.createQuery(criteria).getSingleResult();
+    }
+
+    /* Keyset pagination - WHERE id > :afterId ORDER BY id, so deep pages cost the same as the first one */
+    public List<Product> findVisibleProductsAfter(final Long afterId, final int limit) {
+        final TypedQuery<Product> query = em.createQuery(visibleProductsCriteria(afterId));
+        if (limit > 0) {
+            query.setMaxResults(limit);
+        }
+        return query.getResultList();
+    }
+
+    /*
+        Walks all visible products with a forward-only cursor. The persistence context is cleared
+        after every batch (afterBatch runs just before that), so memory use does not depend on the catalog size.
+     */
+    public long forEachVisibleProduct(final int batchSize, final Consumer<Product> action, final Runnable afterBatch) {
+        final ScrollableResults results = em.createQuery(visibleProductsCriteria(null))
+                .unwrap(Query.class)
+                .setFetchSize(batchSize)
+                .setReadOnly(true)
+                .setCacheMode(CacheMode.IGNORE)
+                .scroll(ScrollMode.FORWARD_ONLY);
+
+        long count = 0;
+        try {
+            while (results.next()) {
+                action.accept((Product) results.get(0));
+                if (++count % batchSize == 0) {
+                    afterBatch.run();
+                    em.clear();
+                }
+            }
+            afterBatch.run();
+        } finally {
+            results.close();
+        }
+        return count;
+    }
+
+    public long countVisibleProductsInCategory(final Long categoryId, final BigDecimal minPrice, final BigDecimal maxPrice) {
+        final CriteriaBuilder builder = em.getCriteriaBuilder();
+        final CriteriaQuery<Long> criteria = builder.createQuery(Long.class);
+        final Root<CategoryProductXrefImpl> xref = criteria.from(CategoryProductXrefImpl.class);
+        final Join<CategoryProductXrefImpl, ProductImpl> product = xref.join("product");
+        final Join<ProductImpl, SkuImpl> defaultSku = product.join("defaultSku", JoinType.LEFT);
+
+        criteria.select(builder.count(xref))
+                .where(isVisibleInCategory(builder, xref, product, defaultSku, categoryId, minPrice, maxPrice));
+
+        return em.createQuery(criteria).getSingleResult();
+    }
+
+    /*
+        One page of the visible products of a category, filtered, sorted and paged by the database instead of
+        walking Category.getAllProductXrefs(). Without a sort the products come in their display order.
+     */
+    public List<Product> findVisibleProductsInCategory(final Long categoryId, final BigDecimal minPrice, final BigDecimal maxPrice,
+                                                       final ProductSort sort, final int limit, final int offset) {
+        final CriteriaBuilder builder = em.getCriteriaBuilder();
+        final CriteriaQuery<Product> criteria = builder.createQuery(Product.class);
+        final Root<CategoryProductXrefImpl> xref = criteria.from(CategoryProductXrefImpl.class);
+        final Join<CategoryProductXrefImpl, ProductImpl> product = xref.join("product");
+        final Join<ProductImpl, SkuImpl> defaultSku = product.join("defaultSku", JoinType.LEFT);
+
+        final List<Order> orders = new ArrayList<>();
+        if (sort == null) {
+            orders.add(builder.asc(xref.get("displayOrder")));
+        } else {
+            final Expression<?> property =
+                    sort.getProperty() == ProductSort.Property.NAME ? defaultSku.get("name")
+                            : sort.getProperty() == ProductSort.Property.PRICE ? price(builder, defaultSku)
+                            : product.get("id");
+            orders.add(sort.isDescending() ? builder.desc(property) : builder.asc(property));
+        }
+        /* A unique last key, so pages do not overlap whatever the sort */
+        orders.add(builder.asc(product.get("id")));
+
+        criteria.select(product)
+                .where(isVisibleInCategory(builder, xref, product, defaultSku, categoryId, minPrice, maxPrice))
+                .orderBy(orders);
+
+        final TypedQuery<Product> query = em.createQuery(criteria);
+        query.setFirstResult(Math.max(offset, 0));
+        if (limit > 0) {
+            query.setMaxResults(limit);
+        }
+        return query.getResultList();
+    }
+
+    protected Predicate isVisibleInCategory(final CriteriaBuilder builder, final Root<CategoryProductXrefImpl> xref,
+                                            final Join<CategoryProductXrefImpl, ProductImpl> product, final Join<ProductImpl, SkuImpl> defaultSku,
+                                            final Long categoryId, final BigDecimal minPrice, final BigDecimal maxPrice) {
+        final List<Predicate> predicates = new ArrayList<>();
+        predicates.add(builder.equal(xref.get("category").get("id"), categoryId));
+        predicates.add(isVisible(builder, product, () -> defaultSku));
+        if (minPrice != null) {
+            predicates.add(builder.greaterThanOrEqualTo(price(builder, defaultSku), minPrice));
+        }
+        if (maxPrice != null) {
+            predicates.add(builder.lessThanOrEqualTo(price(builder, defaultSku), maxPrice));
+        }
+        return builder.and(predicates.toArray(new Predicate[predicates.size()]));
+    }
+
+    /* Query counterpart of Sku.getPrice() - the sale price when it is lower than the retail one (no price lists) */
+    protected Expression<BigDecimal> price(final CriteriaBuilder builder, final Join<ProductImpl, SkuImpl> defaultSku) {
+        final Path<BigDecimal> retailPrice = defaultSku.get("retailPrice");
+        final Path<BigDecimal> salePrice = defaultSku.get("salePrice");
+
+        return builder.<BigDecimal>selectCase()
+                .when(builder.and(builder.isNotNull(salePrice), builder.lessThan(salePrice, retailPrice)), salePrice)
+                .otherwise(retailPrice);
+    }
+
+    protected CriteriaQuery<Product> visibleProductsCriteria(final Long afterId) {
+        final CriteriaBuilder builder = em.getCriteriaBuilder();
+        final CriteriaQuery<Product> criteria = builder.createQuery(Product.class);
+        final Root<ProductImpl> product = criteria.from(ProductImpl.class);
+
+        final Predicate visible = isVisible(builder, product);
+        return criteria.select(product)
+                .where(afterId != null ? builder.and(visible, builder.greaterThan(product.<Long>get("id"), afterId)) : visible)
+                .orderBy(builder.asc(product.get("id")));
+    }
+
+    /*
+        Saves a chunk of products in a single transaction. Converting inside the transaction lets the
+        converter resolve categories etc. in the same persistence context, inserts are grouped into JDBC batches
+        on flush (hibernate.jdbc.batch_size, hibernate.order_inserts in persistence.xml).
+     */
+    @Transactional
+    public <T> List<Long> saveProducts(final List<T> items, final Function<T, Product> toEntity) {
+        return items.stream()
+                .map(toEntity)
+                .map(catalogService::saveProduct)
+                .map(Product::getId)
+                .collect(toList());
+    }
+
+    /*
+        Query counterpart of CatalogUtils.shouldProductBeVisible:
+
+            isActive() || (!archived && PERMISSION_READ_PRODUCT)
+
+        Product.isActive() already requires the product not to be archived, so this boils down to:
+
+            !archived && (PERMISSION_READ_PRODUCT || active dates)
+     */
+    protected Predicate isVisible(final CriteriaBuilder builder, final From<?, ProductImpl> product) {
+        return isVisible(builder, product, () -> product.join("defaultSku", JoinType.LEFT));
+    }
+
+    /* The default SKU is joined only when the active dates are needed, unless the caller has joined it already */
+    protected Predicate isVisible(final CriteriaBuilder builder, final From<?, ProductImpl> product,
+                                  final Supplier<Join<ProductImpl, SkuImpl>> defaultSku) {
+        final Predicate notArchived = isNotArchived(builder, product);
+
+        return CatalogUtils.isUserAthorizedFor(PERMISSION_READ_PRODUCT).test(null)
+                ? notArchived
+                : builder.and(notArchived, isActive(builder, product, defaultSku.get()));
+    }
+
+    protected Predicate isNotArchived(final CriteriaBuilder builder, final From<?, ProductImpl> product) {
+        final Path<Character> archived = product.get("archiveStatus").get("archived");
+        return builder.or(builder.isNull(archived), builder.notEqual(archived, 'Y'));
+    }
+
+    /* Active dates live on the default SKU, the product's own columns are only a fallback (see ProductImpl) */
+    protected Predicate isActive(final CriteriaBuilder builder, final From<?, ProductImpl> product, final Join<ProductImpl, SkuImpl> defaultSku) {
+        final Date now = SystemTime.asDate(true);
+
+        final Expression<Date> activeStartDate =
+                builder.coalesce(defaultSku.<Date>get("activeStartDate"), product.<Date>get("activeStartDate"));
+        final Expression<Date> activeEndDate =
+                builder.coalesce(defaultSku.<Date>get("activeEndDate"), product.<Date>get("activeEndDate"));
+
+        return builder.and(
+                builder.isNotNull(activeStartDate),
+                builder.lessThanOrEqualTo(activeStartDate, now),
+                builder.or(builder.isNull(activeEndDate), builder.greaterThanOrEqualTo(activeEndDate, now))
+        );
+    }
+}
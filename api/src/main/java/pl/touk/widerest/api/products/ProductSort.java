@@ -0,0 +1,45 @@
+package pl.touk.widerest.api.products;
+
+import lombok.Value;
+import pl.touk.widerest.api.common.InvalidSortException;
+
+import java.util.Locale;
+
+/*
+    Order of a product listing, parsed from a 'property[,asc|desc]' request parameter, e.g. 'price,desc'.
+    No parameter means the order the products were put into the category in.
+ */
+@Value
+public class ProductSort {
+
+    public enum Property {
+        ID, NAME, PRICE
+    }
+
+    private Property property;
+
+    private boolean descending;
+
+    public static ProductSort parse(final String sort) throws InvalidSortException {
+        if (sort == null || sort.isEmpty()) {
+            return null;
+        }
+
+        final String[] parts = sort.split(",");
+        if (parts.length > 2) {
+            throw new InvalidSortException("Invalid sort: " + sort);
+        }
+
+        try {
+            final Property property = Property.valueOf(parts[0].trim().toUpperCase(Locale.ROOT));
+            final String direction = parts.length > 1 ? parts[1].trim().toLowerCase(Locale.ROOT) : "asc";
+
+            if (!direction.equals("asc") && !direction.equals("desc")) {
+                throw new InvalidSortException("Invalid sort direction: " + sort);
+            }
+            return new ProductSort(property, direction.equals("desc"));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidSortException("Invalid sort property: " + sort, e);
+        }
+    }
+}
@@ -13,6 +13,7 @@ import org.broadleafcommerce.core.catalog.domain.SkuMediaXref;
 import org.broadleafcommerce.core.catalog.domain.SkuMediaXrefImpl;
 import org.broadleafcommerce.core.catalog.service.CatalogService;
 import org.broadleafcommerce.core.inventory.service.type.InventoryType;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.hateoas.MediaTypes;
 import org.springframework.hateoas.Resources;
 import org.springframework.http.ResponseEntity;
@@ -24,7 +25,9 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import pl.touk.widerest.api.common.CatalogETags;
 import pl.touk.widerest.api.common.CatalogUtils;
 import pl.touk.widerest.api.common.MediaConverter;
 import pl.touk.widerest.api.common.MediaDto;
@@ -33,6 +36,7 @@ import pl.touk.widerest.api.products.ProductController;
 import pl.touk.widerest.api.products.ProductConverter;
 import pl.touk.widerest.api.products.RequiredProductOptionsNotProvided;
 import pl.touk.widerest.security.oauth2.ResourceServerConfig;
+import springfox.documentation.annotations.ApiIgnore;
 
 import javax.annotation.Resource;
 import javax.validation.Valid;
@@ -54,6 +58,12 @@ public class SkuController {
     @Resource
     protected ProductController productController;
 
+    @Resource
+    protected CatalogETags catalogETags;
+
+    @Value("${widerest.skus.cache-control:no-cache}")
+    protected String cacheControl;
+
     @Resource(name = "blCatalogService")
     protected CatalogService catalogService;
 
@@ -87,14 +97,20 @@ public class SkuController {
             @ApiParam(value = "ID of a specific product", required = true)
             @PathVariable(value = "productId") final Long productId,
             @RequestParam(value = "embed", defaultValue = "false") Boolean embed,
-            @RequestParam(value = "link", defaultValue = "true") Boolean link
+            @RequestParam(value = "link", defaultValue = "true") Boolean link,
+            @ApiIgnore ServletWebRequest request
     ) {
+        final String eTag = embed ? null : catalogETags.currentETag();
+        final Product product = productController.getProductById(productId);
+
+        if (catalogETags.checkNotModified(request, eTag, cacheControl)) {
+            return null;
+        }
+
         return new Resources<>(
-                productController.getProductById(productId).getAllSkus().stream()
-                        .map(sku -> skuConverter.createDto(sku, embed, link))
-                        .collect(toList()),
+                skuConverter.createDtos(product.getAllSkus(), embed, link),
 
-                linkTo(methodOn(getClass()).readSkusForProductById(productId, null, null)).withSelfRel()
+                linkTo(methodOn(getClass()).readSkusForProductById(productId, null, null, null)).withSelfRel()
         );
     }
 
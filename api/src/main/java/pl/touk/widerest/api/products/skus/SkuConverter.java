@@ -15,31 +15,39 @@ import org.broadleafcommerce.core.catalog.domain.SkuProductOptionValueXref;
 import org.broadleafcommerce.core.catalog.service.CatalogService;
 import org.broadleafcommerce.core.inventory.service.InventoryService;
 import org.broadleafcommerce.core.inventory.service.type.InventoryType;
-import org.springframework.hateoas.mvc.ControllerLinkBuilder;
 import org.springframework.stereotype.Component;
 import pl.touk.widerest.api.Converter;
 import pl.touk.widerest.api.DtoConverters;
 import pl.touk.widerest.api.common.MediaConverter;
 import pl.touk.widerest.api.products.ProductController;
+import pl.touk.widerest.hal.LinkTemplate;
 
 import javax.annotation.Resource;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Currency;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
+import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
 import static java.util.stream.Collectors.toSet;
-import static org.springframework.hateoas.mvc.ControllerLinkBuilder.linkTo;
-import static org.springframework.hateoas.mvc.ControllerLinkBuilder.methodOn;
+import static pl.touk.widerest.hal.LinkTemplates.linkTemplate;
 
 @Component
 @Slf4j
 public class SkuConverter implements Converter<Sku, SkuDto>{
 
+    private static final LinkTemplate SKU_LINK = linkTemplate(SkuController.class, "getSkuById");
+    private static final LinkTemplate PRODUCT_LINK = linkTemplate(ProductController.class, "readOneProductById");
+    private static final LinkTemplate MEDIA_LINK = linkTemplate(SkuController.class, "getMediaBySkuId");
+    private static final LinkTemplate AVAILABILITY_LINK = linkTemplate(SkuController.class, "getSkuByIdAvailability");
+    private static final LinkTemplate QUANTITY_LINK = linkTemplate(SkuController.class, "getSkuByIdQuantity");
+
     @Resource(name="blCurrencyService")
     protected BroadleafCurrencyService blCurrencyService;
 
@@ -57,14 +65,29 @@ public class SkuConverter implements Converter<Sku, SkuDto>{
     
     @Override
     public SkuDto createDto(final Sku sku, final boolean embed, final boolean link) {
+        return createDto(sku, embed, link, retrieveQuantitiesAvailable(Collections.singletonList(sku)));
+    }
+
+    public List<SkuDto> createDtos(final Collection<Sku> skus, final boolean embed, final boolean link) {
+        final Map<Sku, Integer> quantitiesAvailable = retrieveQuantitiesAvailable(skus);
+
+        return skus.stream()
+                .map(sku -> createDto(sku, embed, link, quantitiesAvailable))
+                .collect(toList());
+    }
+
+    /* quantitiesAvailable has to contain the sku, see retrieveQuantitiesAvailable() */
+    public SkuDto createDto(final Sku sku, final boolean embed, final boolean link, final Map<Sku, Integer> quantitiesAvailable) {
+        final Integer quantityAvailable = quantitiesAvailable.get(sku);
+
         final SkuDto dto = SkuDto.builder()
                 .name(sku.getName())
                 .description(sku.getDescription())
                 .salePrice(Optional.ofNullable(sku.getSalePrice()).map(Money::getAmount).orElse(null))
                 .retailPrice(Optional.ofNullable(sku.getRetailPrice()).map(Money::getAmount).orElse(null))
-                .quantityAvailable(inventoryService.retrieveQuantityAvailable(sku))
+                .quantityAvailable(quantityAvailable)
                 .availability(Optional.ofNullable(sku.getInventoryType()).map(InventoryType::getType).orElse(null))
-                .isAvailable(inventoryService.isAvailable(sku,1))
+                .isAvailable(isAvailable(quantityAvailable))
                 .taxCode(sku.getTaxCode())
                 .validFrom(Optional.ofNullable(sku.getActiveStartDate()).map(Date::toInstant).map(instant -> instant.atZone(ZoneId.systemDefault())).orElse(null))
                 .validTo(Optional.ofNullable(sku.getActiveEndDate()).map(Date::toInstant).map(instant -> instant.atZone(ZoneId.systemDefault())).orElse(null))
@@ -82,28 +105,41 @@ public class SkuConverter implements Converter<Sku, SkuDto>{
                 )
                 .build();
 
-        dto.add(ControllerLinkBuilder.linkTo(methodOn(SkuController.class).getSkuById(sku.getProduct().getId(), sku.getId(), null, null))
+        dto.add(SKU_LINK.linkTo(sku.getProduct().getId(), sku.getId())
                 .withSelfRel());
 
         if (link) {
 
-            dto.add(linkTo(methodOn(ProductController.class).readOneProductById(sku.getProduct().getId(), null, null))
+            dto.add(PRODUCT_LINK.linkTo(sku.getProduct().getId())
                     .withRel("product"));
 
-            dto.add(linkTo(methodOn(SkuController.class).getMediaBySkuId(sku.getProduct().getId(), sku.getId()))
+            dto.add(MEDIA_LINK.linkTo(sku.getProduct().getId(), sku.getId())
                     .withRel("media"));
 
-            dto.add(linkTo(methodOn(SkuController.class).getSkuByIdAvailability(sku.getProduct().getId(), sku.getId()))
+            dto.add(AVAILABILITY_LINK.linkTo(sku.getProduct().getId(), sku.getId())
                     .withRel("availability"));
 
             //dto.add((linkTo(methodOn(ProductController.class).getSkusCountByProductId(sku.getProduct().getId())).withRel("count")));
 
-            dto.add((linkTo(methodOn(SkuController.class).getSkuByIdQuantity(sku.getProduct().getId(), sku.getId())).withRel("quantity")));
+            dto.add(QUANTITY_LINK.linkTo(sku.getProduct().getId(), sku.getId()).withRel("quantity"));
         }
 
         return dto;
     }
 
+    /*
+        One inventory lookup for all the SKUs of a response instead of two per SKU. Broadleaf maps inactive or
+        unavailable SKUs to 0, CHECK_QUANTITY ones to their quantity and ALWAYS_AVAILABLE ones to null.
+     */
+    public Map<Sku, Integer> retrieveQuantitiesAvailable(final Collection<Sku> skus) {
+        return skus.isEmpty() ? Collections.emptyMap() : inventoryService.retrieveQuantitiesAvailable(skus);
+    }
+
+    /* Same answer as inventoryService.isAvailable(sku, 1), given the quantity retrieved for that sku */
+    public static boolean isAvailable(final Integer quantityAvailable) {
+        return quantityAvailable == null || quantityAvailable >= 1;
+    }
+
     @Override
     public Sku createEntity(final SkuDto skuDto) {
         final Sku skuEntity = catalogService.createSku();
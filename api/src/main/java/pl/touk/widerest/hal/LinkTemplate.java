@@ -0,0 +1,39 @@
+package pl.touk.widerest.hal;
+
+import org.springframework.hateoas.mvc.ControllerLinkBuilder;
+import org.springframework.util.StringUtils;
+import org.springframework.web.util.UriTemplate;
+
+import java.util.Arrays;
+
+/**
+ * URI template of a single controller method, resolved once and expanded with path variables only.
+ * Produces the same hrefs as {@code linkTo(methodOn(...))} without creating a proxy for every link.
+ *
+ * @see LinkTemplates
+ */
+public class LinkTemplate {
+
+    private final Class<?> controller;
+
+    private final int controllerVariablesCount;
+
+    private final UriTemplate methodTemplate;
+
+    LinkTemplate(final Class<?> controller, final String controllerMapping, final String methodMapping) {
+        this.controller = controller;
+        this.controllerVariablesCount = StringUtils.hasText(controllerMapping)
+                ? new UriTemplate(controllerMapping).getVariableNames().size()
+                : 0;
+        this.methodTemplate = StringUtils.hasText(methodMapping) ? new UriTemplate(methodMapping) : null;
+    }
+
+    public ControllerLinkBuilder linkTo(final Object... pathVariables) {
+        final ControllerLinkBuilder builder =
+                ControllerLinkBuilder.linkTo(controller, Arrays.copyOfRange(pathVariables, 0, controllerVariablesCount));
+
+        return methodTemplate != null
+                ? builder.slash(methodTemplate.expand(Arrays.copyOfRange(pathVariables, controllerVariablesCount, pathVariables.length)))
+                : builder;
+    }
+}
@@ -0,0 +1,60 @@
+package pl.touk.widerest.hal;
+
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.hateoas.core.AnnotationMappingDiscoverer;
+import org.springframework.hateoas.core.MappingDiscoverer;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.bind.annotation.RequestMapping;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Registry of {@link LinkTemplate}s. Converters obtain their templates into static fields, so every
+ * {@code @RequestMapping} is parsed once when the application starts instead of on every link.
+ */
+public class LinkTemplates {
+
+    private static final MappingDiscoverer DISCOVERER = new AnnotationMappingDiscoverer(RequestMapping.class);
+
+    private static final ConcurrentMap<Method, LinkTemplate> TEMPLATES = new ConcurrentHashMap<>();
+
+    private LinkTemplates() {
+    }
+
+    public static LinkTemplate linkTemplate(final Class<?> controller, final String methodName) {
+        return TEMPLATES.computeIfAbsent(findHandlerMethod(controller, methodName), method -> createLinkTemplate(controller, method));
+    }
+
+    private static LinkTemplate createLinkTemplate(final Class<?> controller, final Method method) {
+        final String controllerMapping = Optional.ofNullable(DISCOVERER.getMapping(controller)).orElse("");
+        final String fullMapping = Optional.ofNullable(DISCOVERER.getMapping(controller, method)).orElse("");
+
+        if (!fullMapping.startsWith(controllerMapping)) {
+            throw new IllegalStateException("Cannot resolve mapping of " + method + " relative to " + controllerMapping);
+        }
+
+        return new LinkTemplate(controller, controllerMapping, fullMapping.substring(controllerMapping.length()));
+    }
+
+    private static Method findHandlerMethod(final Class<?> controller, final String methodName) {
+        final List<Method> handlerMethods = Stream.of(ReflectionUtils.getUniqueDeclaredMethods(controller))
+                .filter(method -> method.getName().equals(methodName))
+                .filter(method -> AnnotatedElementUtils.hasAnnotation(method, RequestMapping.class))
+                .collect(toList());
+
+        if (handlerMethods.size() != 1) {
+            throw new IllegalArgumentException(
+                    "Expected exactly one handler method named " + methodName + " in " + controller.getName() + " but found " + handlerMethods.size()
+            );
+        }
+
+        return handlerMethods.get(0);
+    }
+}
@@ -2,7 +2,9 @@ package pl.touk.widerest.security.authentication;
 
 import static java.util.stream.Collectors.toList;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Stream;
 
 import javax.annotation.Resource;
@@ -15,9 +17,12 @@ import org.broadleafcommerce.profile.core.service.CustomerUserDetails;
 import org.broadleafcommerce.profile.core.service.RoleService;
 import org.springframework.dao.DataAccessException;
 import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class AnonymousUserDetailsService  {
@@ -28,19 +33,77 @@ public class AnonymousUserDetailsService  {
     @Resource(name = "blRoleService")
     protected RoleService roleService;
 
+    @Resource
+    protected CustomerAuthoritiesCache customerAuthoritiesCache;
+
+    public static final String ROLE_USER = "ROLE_USER";
+
+    private static final String NO_PASSWORD = "";
+
+    private static final List<GrantedAuthority> ANONYMOUS_AUTHORITIES =
+            Collections.unmodifiableList(AuthorityUtils.createAuthorityList(ROLE_USER));
+
     public Customer createAnonymousCustomer() throws DataAccessException {
-        Customer customer = customerService.createNewCustomer();
-        customer.setUsername(String.valueOf(customer.getId()));
-        customer.setPassword(RandomStringUtils.randomAscii(8));
-        return customerService.saveCustomer(customer);
+        return saveAnonymousCustomer(customerService.createNewCustomer());
     }
 
+    /*
+        Anonymous principals only reserve a customer id, nothing is inserted until the visitor writes something
+        (creates an order, updates or registers the customer) - see getOrCreateCustomer. Most anonymous visitors only
+        browse the catalog and never get a row in the customer table.
+
+        Authorities are the ones UserDetailsServiceImpl gives a customer without roles.
+     */
     public UserDetails createAnonymousUserDetails() throws DataAccessException {
-        return createCustomerUserDetails(createAnonymousCustomer());
+        return createAnonymousUserDetails(customerService.createNewCustomer().getId());
+    }
+
+    public UserDetails createAnonymousUserDetails(final Long customerId) {
+        return new CustomerUserDetails(customerId, String.valueOf(customerId), NO_PASSWORD, true, true, true, true,
+                ANONYMOUS_AUTHORITIES);
+    }
+
+    /*
+        Principals issued by createAnonymousUserDetails stay valid only as long as the customer is anonymous -
+        once registered (or renamed) the customer has to log in.
+     */
+    public UserDetails loadAnonymousUserDetails(final Long customerId) throws UsernameNotFoundException {
+        final Customer customer = customerService.readCustomerById(customerId);
+        if (customer == null) {
+            return createAnonymousUserDetails(customerId);
+        }
+        if (customer.isRegistered() || !String.valueOf(customerId).equals(customer.getUsername())) {
+            throw new UsernameNotFoundException("Customer " + customerId + " is no longer anonymous");
+        }
+        return createCustomerUserDetails(customer);
+    }
+
+    /* For writes - materializes the customer reserved by createAnonymousUserDetails */
+    @Transactional
+    public Customer getOrCreateCustomer(final Long customerId) throws DataAccessException {
+        return Optional.ofNullable(customerService.readCustomerById(customerId))
+                .orElseGet(() -> saveAnonymousCustomer(customerService.createCustomerFromId(customerId)));
+    }
+
+    /* For reads - a customer not materialized yet is returned as a transient one */
+    public Customer readCustomer(final Long customerId) {
+        return Optional.ofNullable(customerService.readCustomerById(customerId))
+                .orElseGet(() -> initAnonymousCustomer(customerService.createCustomerFromId(customerId)));
+    }
+
+    protected Customer saveAnonymousCustomer(final Customer customer) {
+        return customerService.saveCustomer(initAnonymousCustomer(customer));
+    }
+
+    protected Customer initAnonymousCustomer(final Customer customer) {
+        customer.setUsername(String.valueOf(customer.getId()));
+        customer.setPassword(RandomStringUtils.randomAscii(8));
+        return customer;
     }
 
     public UserDetails createCustomerUserDetails(Customer customer) {
-        List<GrantedAuthority> grantedAuthorities = createGrantedAuthorities(roleService.findCustomerRolesByCustomerId(customer.getId()));
+        List<GrantedAuthority> grantedAuthorities = customerAuthoritiesCache.get(customer.getId(),
+                () -> createGrantedAuthorities(roleService.findCustomerRolesByCustomerId(customer.getId())));
         CustomerUserDetails userDetails = new CustomerUserDetails(customer.getId(), customer.getUsername(), customer.getPassword(), !customer.isDeactivated(), true, !customer.isPasswordChangeRequired(), true, grantedAuthorities);
         userDetails.eraseCredentials();
         return userDetails;
@@ -0,0 +1,155 @@
+package pl.touk.widerest.security.authentication;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import org.broadleafcommerce.profile.core.domain.Customer;
+import org.broadleafcommerce.profile.core.domain.CustomerRole;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+import pl.touk.widerest.api.common.HibernateListeners;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnit;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/*
+    Authorities of customers, by customer id, so logins, anonymous tokens and authorization codes do not have to
+    look up the roles of the same customer again.
+
+    There are only a few distinct role names, every one of them has a single (immutable) authority instance shared by
+    all the cached lists. Entries are dropped after a committed change of any role of the customer or of the customer
+    itself, the TTL bounds anything else. As in PrincipalCache, authorities of a customer changed while they were being
+    loaded are returned but not cached.
+ */
+@Component
+@ManagedResource(objectName = "pl.touk.widerest:type=CustomerAuthoritiesCache")
+public class CustomerAuthoritiesCache implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    @Value("${widerest.oauth2.customer-authorities-cache.size:10000}")
+    protected long maximumSize;
+
+    @Value("${widerest.oauth2.customer-authorities-cache.ttl:300}")
+    protected long timeToLiveSeconds;
+
+    @PersistenceUnit(unitName = "blPU")
+    protected EntityManagerFactory entityManagerFactory;
+
+    private final ConcurrentMap<String, GrantedAuthority> authorities = new ConcurrentHashMap<>();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private Cache<Long, List<GrantedAuthority>> customerAuthorities;
+
+    /* Sequence number of the last change, by customer id */
+    private Cache<Long, Long> changes;
+
+    @PostConstruct
+    public void init() {
+        customerAuthorities = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLiveSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+
+        changes = CacheBuilder.newBuilder()
+                .expireAfterWrite(timeToLiveSeconds, TimeUnit.SECONDS)
+                .build();
+
+        HibernateListeners.register(entityManagerFactory, this,
+                EventType.POST_COMMIT_INSERT,
+                EventType.POST_COMMIT_UPDATE,
+                EventType.POST_COMMIT_DELETE);
+    }
+
+    public List<GrantedAuthority> get(final Long customerId, final Supplier<List<GrantedAuthority>> loader) {
+        final List<GrantedAuthority> cached = customerAuthorities.getIfPresent(customerId);
+        if (cached != null) {
+            return cached;
+        }
+
+        final long loadStarted = sequence.get();
+        final List<GrantedAuthority> loaded = ImmutableList.copyOf(loader.get().stream()
+                .map(GrantedAuthority::getAuthority)
+                .map(this::authority)
+                .collect(Collectors.toList()));
+        if (Optional.ofNullable(changes.getIfPresent(customerId)).orElse(0L) <= loadStarted) {
+            customerAuthorities.put(customerId, loaded);
+        }
+        return loaded;
+    }
+
+    public GrantedAuthority authority(final String roleName) {
+        return authorities.computeIfAbsent(roleName, SimpleGrantedAuthority::new);
+    }
+
+    @ManagedOperation
+    public void invalidateAll() {
+        customerAuthorities.invalidateAll();
+    }
+
+    @ManagedAttribute
+    public long getHitCount() {
+        return customerAuthorities.stats().hitCount();
+    }
+
+    @ManagedAttribute
+    public long getMissCount() {
+        return customerAuthorities.stats().missCount();
+    }
+
+    @ManagedAttribute
+    public long getSize() {
+        return customerAuthorities.size();
+    }
+
+    @Override
+    public void onPostInsert(final PostInsertEvent event) {
+        onChange(event.getEntity());
+    }
+
+    @Override
+    public void onPostUpdate(final PostUpdateEvent event) {
+        onChange(event.getEntity());
+    }
+
+    @Override
+    public void onPostDelete(final PostDeleteEvent event) {
+        onChange(event.getEntity());
+    }
+
+    protected void onChange(final Object entity) {
+        if (entity instanceof CustomerRole && ((CustomerRole) entity).getCustomer() != null) {
+            invalidate(((CustomerRole) entity).getCustomer().getId());
+        } else if (entity instanceof Customer) {
+            invalidate(((Customer) entity).getId());
+        }
+    }
+
+    protected void invalidate(final Long customerId) {
+        if (customerId != null) {
+            changes.put(customerId, sequence.incrementAndGet());
+            customerAuthorities.invalidate(customerId);
+        }
+    }
+}
@@ -9,13 +9,12 @@ import org.springframework.security.oauth2.config.annotation.configurers.ClientD
 import org.springframework.security.oauth2.config.annotation.web.configuration.AuthorizationServerConfigurerAdapter;
 import org.springframework.security.oauth2.config.annotation.web.configurers.AuthorizationServerEndpointsConfigurer;
 import org.springframework.security.oauth2.config.annotation.web.configurers.AuthorizationServerSecurityConfigurer;
-import org.springframework.security.oauth2.provider.code.AuthorizationCodeServices;
-import org.springframework.security.oauth2.provider.code.InMemoryAuthorizationCodeServices;
 import org.springframework.security.oauth2.provider.token.AuthorizationServerTokenServices;
 import org.springframework.security.oauth2.provider.token.DefaultTokenServices;
 import org.springframework.security.oauth2.provider.token.TokenEnhancer;
 import org.springframework.security.oauth2.provider.token.TokenStore;
 import pl.touk.widerest.security.authentication.AnonymousUserInterceptor;
+import pl.touk.widerest.security.oauth2.code.JpaAuthorizationCodeServices;
 import pl.touk.widerest.security.oauth2.oob.OobAuthorizationServerEndpointsConfiguration;
 import pl.touk.widerest.security.oauth2.oob.OobAuthorizationServerSecurityConfiguration;
 
@@ -44,8 +43,8 @@ public class AuthorizationServerConfig extends AuthorizationServerConfigurerAdap
     PrincipalMatchOAuth2RequestValidator oAuth2RequestValidator;
 
     @Bean
-    AuthorizationCodeServices authorizationCodeServices() {
-        return new InMemoryAuthorizationCodeServices();
+    JpaAuthorizationCodeServices authorizationCodeServices() {
+        return new JpaAuthorizationCodeServices();
     }
 
     @Value("${widerest.oauth2.token-expiration:#{30 * 60}}")
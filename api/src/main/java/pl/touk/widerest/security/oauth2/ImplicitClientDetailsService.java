@@ -2,44 +2,125 @@ package pl.touk.widerest.security.oauth2;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+import javax.annotation.PostConstruct;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
 import org.springframework.security.oauth2.provider.ClientDetails;
 import org.springframework.security.oauth2.provider.ClientDetailsService;
 import org.springframework.security.oauth2.provider.ClientRegistrationException;
 import org.springframework.security.oauth2.provider.client.BaseClientDetails;
 import org.springframework.stereotype.Service;
 
-/* Creates client details for any id issued by the application */
+/*
+    Creates client details for any id issued by the application
+
+    Spring OAuth asks for the client details several times per authorization/token request, so they are built
+    (and the client id validated) once per client id and resource id. Replacing the validator or the resource id
+    supplier drops everything built so far, the TTL bounds how long a validator's decision is remembered.
+ */
 @Service
+@ManagedResource(objectName = "pl.touk.widerest:type=ImplicitClientDetailsService")
 public class ImplicitClientDetailsService implements ClientDetailsService {
 
-    @Autowired(required = false)
+    private static final List<String> GRANT_TYPES =
+            Collections.unmodifiableList(Arrays.asList("password", "implicit", "authorization_code"));
+
+    private static final List<String> SCOPES =
+            Collections.unmodifiableList(Arrays.stream(Scope.values()).map(Scope::toString).collect(Collectors.toList()));
+
+    @Value("${widerest.oauth2.client-details-cache.size:1000}")
+    protected long maximumSize;
+
+    @Value("${widerest.oauth2.client-details-cache.ttl:300}")
+    protected long timeToLiveSeconds;
+
     Supplier<String> resourceIdSupplier;
 
-    @Autowired(required = false)
     Consumer<String> clientIdValidator;
 
+    private Cache<List<String>, ClientDetails> clientDetails;
+
+    @PostConstruct
+    public void init() {
+        clientDetails = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLiveSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+    }
+
+    @Autowired(required = false)
+    public void setResourceIdSupplier(final Supplier<String> resourceIdSupplier) {
+        this.resourceIdSupplier = resourceIdSupplier;
+        invalidateAll();
+    }
+
+    @Autowired(required = false)
+    public void setClientIdValidator(final Consumer<String> clientIdValidator) {
+        this.clientIdValidator = clientIdValidator;
+        invalidateAll();
+    }
+
     @Override
     public ClientDetails loadClientByClientId(String clientId) throws ClientRegistrationException {
+        /* the resource id is a part of the key - a supplier may well depend on the current request (tenant) */
+        final String resourceId = resourceIdSupplier != null ? resourceIdSupplier.get() : null;
+
+        try {
+            return clientDetails.get(Arrays.asList(clientId, resourceId), () -> createClientDetails(clientId, resourceId));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new ClientRegistrationException(e.getMessage(), e.getCause());
+        }
+    }
+
+    protected ClientDetails createClientDetails(final String clientId, final String resourceId) {
         if (clientIdValidator != null) {
             clientIdValidator.accept(clientId);
         }
 
         final BaseClientDetails clientDetails = new BaseClientDetails();
         clientDetails.setClientId(clientId);
-        clientDetails.setAuthorizedGrantTypes(Arrays.asList("password", "implicit", "authorization_code"));
-        clientDetails.setScope(
-                Arrays.asList(Scope.values()).stream().map(Scope::toString).collect(Collectors.toList())
-        );
-        clientDetails.setAutoApproveScopes(clientDetails.getScope());
-
-        if (resourceIdSupplier != null)
-            clientDetails.setResourceIds(Collections.singletonList(resourceIdSupplier.get()));
+        clientDetails.setAuthorizedGrantTypes(GRANT_TYPES);
+        clientDetails.setScope(SCOPES);
+        clientDetails.setAutoApproveScopes(SCOPES);
+
+        if (resourceId != null)
+            clientDetails.setResourceIds(Collections.singletonList(resourceId));
         return clientDetails;
 
     }
+
+    @ManagedOperation
+    public void invalidateAll() {
+        if (clientDetails != null) {
+            clientDetails.invalidateAll();
+        }
+    }
+
+    @ManagedAttribute
+    public long getHitCount() {
+        return clientDetails.stats().hitCount();
+    }
+
+    @ManagedAttribute
+    public long getMissCount() {
+        return clientDetails.stats().missCount();
+    }
 }
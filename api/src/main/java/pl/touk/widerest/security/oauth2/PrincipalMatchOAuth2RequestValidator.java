@@ -39,9 +39,10 @@ public class PrincipalMatchOAuth2RequestValidator extends DefaultOAuth2RequestVa
                 if ( !(principal instanceof CustomerUserDetails) ) {
                     throw new InsufficientAuthenticationException("Not logged in as a customer");
                 }
-                Customer customer = customerService.readCustomerById(((CustomerUserDetails) principal).getId());
                 if (Scope.CUSTOMER_REGISTERED.matches(scope)) {
-                    if (!customer.isRegistered()) {
+                    /* anonymous customers may not be persisted yet */
+                    Customer customer = customerService.readCustomerById(((CustomerUserDetails) principal).getId());
+                    if (customer == null || !customer.isRegistered()) {
                         throw new InsufficientAuthenticationException("Not logged in as a registered customer");
                     }
                 }
@@ -0,0 +1,39 @@
+package pl.touk.widerest.security.oauth2.code;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.Index;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Lob;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import java.util.Date;
+
+/* Issued, not yet redeemed authorization code - the code itself is the (indexed) primary key */
+@Entity
+@Table(name = "WD_OAUTH_CODE")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuthorizationCode {
+
+    @Id
+    @Column(name = "CODE", length = 256)
+    private String code;
+
+    @Lob
+    @Column(name = "AUTHENTICATION", nullable = false)
+    private byte[] authentication;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "EXPIRES_AT", nullable = false)
+    @Index(name = "WD_OAUTH_CODE_EXPIRES_INDEX", columnNames = { "EXPIRES_AT" })
+    private Date expiresAt;
+}
@@ -0,0 +1,102 @@
+package pl.touk.widerest.security.oauth2.code;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.oauth2.common.util.SerializationUtils;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.code.RandomValueAuthorizationCodeServices;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+    Authorization codes shared by all nodes through the blPU database, so a code created on one node (e.g. by
+    CustomerController.createAuthorizationCode) can be redeemed on any other.
+
+    A code is consumed by a single delete - only the node that actually deleted the row gets the authentication, so
+    concurrent redemptions of the same code cannot both succeed. Expired codes are never returned and are swept
+    every widerest.oauth2.authorization-code.sweep-interval milliseconds.
+ */
+@Slf4j
+@ManagedResource(objectName = "pl.touk.widerest:type=AuthorizationCodeServices")
+public class JpaAuthorizationCodeServices extends RandomValueAuthorizationCodeServices {
+
+    @Value("${widerest.oauth2.authorization-code.expiration:300}")
+    protected long expirationSeconds;
+
+    @PersistenceContext(unitName = "blPU")
+    protected EntityManager em;
+
+    @Resource(name = "blTransactionManager")
+    protected PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    private final AtomicLong sweptCodes = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    protected void store(final String code, final OAuth2Authentication authentication) {
+        final Date expiresAt = new Date(System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(expirationSeconds));
+        transactionTemplate.execute(status -> {
+            em.persist(new AuthorizationCode(code, SerializationUtils.serialize(authentication), expiresAt));
+            return null;
+        });
+    }
+
+    @Override
+    protected OAuth2Authentication remove(final String code) {
+        return transactionTemplate.execute(status -> {
+            final Date now = new Date();
+
+            final List<byte[]> authentication = em.createQuery(
+                    "select c.authentication from AuthorizationCode c where c.code = :code and c.expiresAt > :now", byte[].class)
+                    .setParameter("code", code)
+                    .setParameter("now", now)
+                    .getResultList();
+
+            final int deleted = em.createQuery("delete from AuthorizationCode c where c.code = :code and c.expiresAt > :now")
+                    .setParameter("code", code)
+                    .setParameter("now", now)
+                    .executeUpdate();
+
+            return deleted == 1 && !authentication.isEmpty()
+                    ? SerializationUtils.<OAuth2Authentication>deserialize(authentication.get(0))
+                    : null;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${widerest.oauth2.authorization-code.sweep-interval:60000}")
+    public void sweepExpired() {
+        final int swept = transactionTemplate.execute(status ->
+                em.createQuery("delete from AuthorizationCode c where c.expiresAt <= :now")
+                        .setParameter("now", new Date())
+                        .executeUpdate()
+        );
+
+        if (swept > 0) {
+            sweptCodes.addAndGet(swept);
+            log.debug("Swept {} expired authorization codes", swept);
+        }
+    }
+
+    @ManagedAttribute
+    public long getSweptCodes() {
+        return sweptCodes.get();
+    }
+}
@@ -0,0 +1,71 @@
+package pl.touk.widerest.security.oauth2.jwt;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Keeps claims of already verified tokens, so a token reused for many requests is verified and parsed once.
+
+    Only decoding is cached - the authentication is still built from the claims on every request, so principals
+    go through WiderestUserAuthenticationConverter (and PrincipalCache invalidation) as before.
+
+    Entries are keyed by a SHA-256 of the token and never outlive the token's exp claim, tokens without one
+    are not cached.
+ */
+public class CachingJwtAccessTokenConverter extends SigningJwtAccessTokenConverter {
+
+    private final Cache<String, VerifiedClaims> verifiedClaims;
+
+    public CachingJwtAccessTokenConverter(final long maximumSize) {
+        verifiedClaims = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    protected Map<String, Object> decode(final String token) {
+        final String key = Hashing.sha256().hashString(token, StandardCharsets.UTF_8).toString();
+
+        final VerifiedClaims cached = verifiedClaims.getIfPresent(key);
+        if (cached != null) {
+            if (System.currentTimeMillis() < cached.expiresAt) {
+                return new HashMap<>(cached.claims);
+            }
+            verifiedClaims.invalidate(key);
+        }
+
+        final Map<String, Object> claims = super.decode(token);
+
+        final Object exp = claims.get(EXP);
+        if (exp instanceof Number) {
+            verifiedClaims.put(key, new VerifiedClaims(new HashMap<>(claims), TimeUnit.SECONDS.toMillis(((Number) exp).longValue())));
+        }
+
+        return claims;
+    }
+
+    public long getHitCount() {
+        return verifiedClaims.stats().hitCount();
+    }
+
+    public long getMissCount() {
+        return verifiedClaims.stats().missCount();
+    }
+
+    private static class VerifiedClaims {
+        final Map<String, Object> claims;
+        final long expiresAt;
+
+        VerifiedClaims(final Map<String, Object> claims, final long expiresAt) {
+            this.claims = claims;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
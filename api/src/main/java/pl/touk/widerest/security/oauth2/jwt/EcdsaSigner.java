@@ -0,0 +1,148 @@
+package pl.touk.widerest.security.oauth2.jwt;
+
+import org.springframework.security.jwt.crypto.sign.InvalidSignatureException;
+import org.springframework.security.jwt.crypto.sign.SignatureVerifier;
+import org.springframework.security.jwt.crypto.sign.Signer;
+
+import java.security.AlgorithmParameters;
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.util.Arrays;
+
+/*
+    ES256 for spring-security-jwt, which only comes with RSA and HMAC signers. JwtHelper cannot name the
+    algorithm in the JWS header either - issue tokens through SigningJwtAccessTokenConverter.
+
+    JCA produces (and expects) DER encoded ECDSA signatures, JWS uses the fixed size R || S concatenation
+    (RFC 7518, 3.4) - hence the transcoding.
+ */
+public class EcdsaSigner implements Signer, SignatureVerifier {
+
+    private static final String ALGORITHM = "SHA256withECDSA";
+
+    private static final String JWS_ALGORITHM = "ES256";
+
+    /* P-256 */
+    private static final int COORDINATE_LENGTH = 32;
+
+    private final PrivateKey privateKey;
+
+    private final PublicKey publicKey;
+
+    /* Any other curve would produce signatures of another length, or of the wrong strength for ES256 */
+    public EcdsaSigner(final PrivateKey privateKey, final PublicKey publicKey) {
+        if (!(publicKey instanceof ECPublicKey) || !isP256(((ECPublicKey) publicKey).getParams())) {
+            throw new IllegalArgumentException(JWS_ALGORITHM + " requires a P-256 (secp256r1) key");
+        }
+        this.privateKey = privateKey;
+        this.publicKey = publicKey;
+    }
+
+    @Override
+    public byte[] sign(final byte[] bytes) {
+        try {
+            final Signature signature = Signature.getInstance(ALGORITHM);
+            signature.initSign(privateKey);
+            signature.update(bytes);
+            return derToConcatenated(signature.sign());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void verify(final byte[] content, final byte[] sig) {
+        if (sig.length != 2 * COORDINATE_LENGTH) {
+            throw new InvalidSignatureException("ECDSA signature has to be " + 2 * COORDINATE_LENGTH + " bytes long");
+        }
+
+        try {
+            final Signature signature = Signature.getInstance(ALGORITHM);
+            signature.initVerify(publicKey);
+            signature.update(content);
+            if (!signature.verify(concatenatedToDer(sig))) {
+                throw new InvalidSignatureException("ECDSA signature did not match content");
+            }
+        } catch (GeneralSecurityException e) {
+            throw new InvalidSignatureException("ECDSA signature could not be verified: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public String algorithm() {
+        return ALGORITHM;
+    }
+
+    public String jwsAlgorithm() {
+        return JWS_ALGORITHM;
+    }
+
+    private static boolean isP256(final ECParameterSpec params) {
+        try {
+            final AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+            parameters.init(new ECGenParameterSpec("secp256r1"));
+            final ECParameterSpec p256 = parameters.getParameterSpec(ECParameterSpec.class);
+            return p256.getCurve().equals(params.getCurve())
+                    && p256.getGenerator().equals(params.getGenerator())
+                    && p256.getOrder().equals(params.getOrder());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /* SEQUENCE { INTEGER r, INTEGER s } -> r || s */
+    static byte[] derToConcatenated(final byte[] der) {
+        int offset = der[1] == (byte) 0x81 ? 3 : 2;
+
+        final byte[] result = new byte[2 * COORDINATE_LENGTH];
+        for (int i = 0; i < 2; i++) {
+            final int length = der[offset + 1];
+            final int start = offset + 2;
+            final int significant = Math.min(length, COORDINATE_LENGTH);
+            System.arraycopy(der, start + length - significant, result, (i + 1) * COORDINATE_LENGTH - significant, significant);
+            offset = start + length;
+        }
+        return result;
+    }
+
+    /* r || s -> SEQUENCE { INTEGER r, INTEGER s } */
+    static byte[] concatenatedToDer(final byte[] concatenated) {
+        final byte[] r = derInteger(Arrays.copyOfRange(concatenated, 0, COORDINATE_LENGTH));
+        final byte[] s = derInteger(Arrays.copyOfRange(concatenated, COORDINATE_LENGTH, 2 * COORDINATE_LENGTH));
+
+        final int length = r.length + s.length;
+        final int header = length >= 0x80 ? 3 : 2;
+
+        final byte[] der = new byte[header + length];
+        der[0] = 0x30;
+        if (header == 3) {
+            der[1] = (byte) 0x81;
+            der[2] = (byte) length;
+        } else {
+            der[1] = (byte) length;
+        }
+        System.arraycopy(r, 0, der, header, r.length);
+        System.arraycopy(s, 0, der, header + r.length, s.length);
+        return der;
+    }
+
+    private static byte[] derInteger(final byte[] unsigned) {
+        int start = 0;
+        while (start < unsigned.length - 1 && unsigned[start] == 0) {
+            start++;
+        }
+        final boolean padded = (unsigned[start] & 0x80) != 0;
+        final int length = unsigned.length - start + (padded ? 1 : 0);
+
+        final byte[] integer = new byte[2 + length];
+        integer[0] = 0x02;
+        integer[1] = (byte) length;
+        System.arraycopy(unsigned, start, integer, 2 + (padded ? 1 : 0), unsigned.length - start);
+        return integer;
+    }
+}
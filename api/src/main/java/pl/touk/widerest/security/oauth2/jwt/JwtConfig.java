@@ -1,39 +1,52 @@
 package pl.touk.widerest.security.oauth2.jwt;
 
-import javaslang.control.Try;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.core.io.UrlResource;
 import org.springframework.core.io.support.PropertiesLoaderSupport;
 import org.springframework.security.oauth2.provider.token.AccessTokenConverter;
 import org.springframework.security.oauth2.provider.token.UserAuthenticationConverter;
 import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
 import org.springframework.security.oauth2.provider.token.store.JwtTokenStore;
-import org.springframework.security.oauth2.provider.token.store.KeyStoreKeyFactory;
 import org.springframework.util.ResourceUtils;
+import org.springframework.util.StringUtils;
 
-import java.io.FileNotFoundException;
-import java.net.URL;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.security.Key;
 import java.security.KeyPair;
+import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.security.PrivateKey;
+import java.security.cert.Certificate;
 import java.util.Collection;
 
 @Configuration
 public class JwtConfig {
 
-    @Value("${widerest.jwt.key-store}")
+    @Value("${widerest.jwt.key-store:}")
     private String keyStore;
 
-    @Value("${widerest.jwt.key-store-password}")
+    @Value("${widerest.jwt.key-store-password:}")
     private String keyStorePassword;
 
-    @Value("${widerest.jwt.key-alias}")
+    @Value("${widerest.jwt.key-alias:}")
     private String keyAlias;
 
-    @Value("${widerest.jwt.key-password}")
+    @Value("${widerest.jwt.key-password:}")
     private String keyPassword;
 
+    @Value("${widerest.jwt.token-cache-size:10000}")
+    private long tokenCacheSize;
+
+    @Value("${widerest.jwt.algorithm:RS256}")
+    private JwtSigningAlgorithm algorithm;
+
+    @Value("${widerest.jwt.secret:}")
+    private String secret;
+
     @Bean
     public JwtTokenStore tokenStore(JwtAccessTokenConverter jwtTokenEnhancer) {
         return new JwtTokenStore(jwtTokenEnhancer);
@@ -41,19 +54,50 @@ public class JwtConfig {
 
     @Bean
     public JwtAccessTokenConverter jwtTokenEnhancer(AccessTokenConverter accessTokenConverter, UserAuthenticationConverter userAuthenticationConverter) {
-        JwtAccessTokenConverter jwtAccessTokenConverter = new JwtAccessTokenConverter();
+        SigningJwtAccessTokenConverter jwtAccessTokenConverter = new CachingJwtAccessTokenConverter(tokenCacheSize);
         jwtAccessTokenConverter.setAccessTokenConverter(accessTokenConverter);
-        Try.of(this::loadKeyPair).onSuccess(jwtAccessTokenConverter::setKeyPair);
+        if (algorithm.requiresKeyPair()) {
+            final KeyPair keyPair = signingKeyPair();
+            try {
+                algorithm.configure(jwtAccessTokenConverter, keyPair, secret);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalStateException("Key pair '" + keyAlias + "' from " + keyStore + " cannot be used for " + algorithm, e);
+            }
+        } else if (StringUtils.hasText(secret)) {
+            algorithm.configure(jwtAccessTokenConverter, null, secret);
+        } else {
+            throw new IllegalStateException("widerest.jwt.secret is required for " + algorithm);
+        }
         return jwtAccessTokenConverter;
     }
 
+    /* No silent fallback to a random key - every node would sign with a secret of its own */
+    private KeyPair signingKeyPair() {
+        if (!StringUtils.hasText(keyStore)) {
+            throw new IllegalStateException("widerest.jwt.key-store is required for " + algorithm);
+        }
+        try {
+            return loadKeyPair();
+        } catch (GeneralSecurityException | IOException | RuntimeException e) {
+            throw new IllegalStateException("Cannot load " + algorithm + " key pair '" + keyAlias + "' from " + keyStore, e);
+        }
+    }
+
     @Autowired
     private Collection<PropertiesLoaderSupport> propertiesLoaders;
 
-    protected KeyPair loadKeyPair() throws FileNotFoundException {
-        URL keystoreUrl = ResourceUtils.getURL(keyStore);
-        return new KeyStoreKeyFactory(new UrlResource(keystoreUrl), keyStorePassword.toCharArray())
-                .getKeyPair(keyAlias, keyPassword.toCharArray());
+    /* KeyStoreKeyFactory handles RSA keys only, the public key is taken from the certificate instead */
+    protected KeyPair loadKeyPair() throws GeneralSecurityException, IOException {
+        final KeyStore store = KeyStore.getInstance("jks");
+        try (InputStream inputStream = ResourceUtils.getURL(keyStore).openStream()) {
+            store.load(inputStream, keyStorePassword.toCharArray());
+        }
+        final Certificate certificate = store.getCertificate(keyAlias);
+        final Key privateKey = store.getKey(keyAlias, keyPassword.toCharArray());
+        if (certificate == null || !(privateKey instanceof PrivateKey)) {
+            throw new KeyStoreException("No private key with a certificate under alias '" + keyAlias + "'");
+        }
+        return new KeyPair(certificate.getPublicKey(), (PrivateKey) privateKey);
     }
 
 
@@ -0,0 +1,58 @@
+package pl.touk.widerest.security.oauth2.jwt;
+
+import org.springframework.security.jwt.crypto.sign.MacSigner;
+import org.springframework.util.Base64Utils;
+
+import java.security.KeyPair;
+
+/*
+    widerest.jwt.algorithm
+
+    RS256 - RSA key pair from the key store (default)
+    ES256 - P-256 key pair from the key store, much cheaper to sign with than RSA
+    HS256 - shared secret (widerest.jwt.secret), only for deployments where every resource server may also issue tokens
+
+    /oauth/token_key serves the public key as PEM for RS256 and ES256 and no key at all for HS256.
+ */
+public enum JwtSigningAlgorithm {
+
+    RS256 {
+        @Override
+        public void configure(final SigningJwtAccessTokenConverter converter, final KeyPair keyPair, final String secret) {
+            converter.setKeyPair(keyPair);
+        }
+    },
+
+    ES256 {
+        @Override
+        public void configure(final SigningJwtAccessTokenConverter converter, final KeyPair keyPair, final String secret) {
+            final EcdsaSigner signer = new EcdsaSigner(keyPair.getPrivate(), keyPair.getPublic());
+            converter.setSigner(signer);
+            converter.setVerifier(signer);
+            converter.setVerifierKey("-----BEGIN PUBLIC KEY-----\n"
+                    + Base64Utils.encodeToString(keyPair.getPublic().getEncoded())
+                    + "\n-----END PUBLIC KEY-----");
+        }
+    },
+
+    HS256 {
+        @Override
+        public void configure(final SigningJwtAccessTokenConverter converter, final KeyPair keyPair, final String secret) {
+            final MacSigner signer = new MacSigner(secret);
+            converter.setSigner(signer);
+            converter.setVerifier(signer);
+            converter.setVerifierKey(null);
+        }
+
+        @Override
+        public boolean requiresKeyPair() {
+            return false;
+        }
+    };
+
+    public abstract void configure(SigningJwtAccessTokenConverter converter, KeyPair keyPair, String secret);
+
+    public boolean requiresKeyPair() {
+        return true;
+    }
+}
@@ -0,0 +1,237 @@
+package pl.touk.widerest.security.oauth2.jwt;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.broadleafcommerce.openadmin.server.security.domain.AdminPermission;
+import org.broadleafcommerce.openadmin.server.security.domain.AdminRole;
+import org.broadleafcommerce.openadmin.server.security.domain.AdminUser;
+import org.broadleafcommerce.openadmin.server.security.service.AdminUserDetails;
+import org.broadleafcommerce.profile.core.domain.Customer;
+import org.broadleafcommerce.profile.core.domain.CustomerRole;
+import org.broadleafcommerce.profile.core.service.CustomerUserDetails;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCollectionRecreateEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionRemoveEvent;
+import org.hibernate.event.spi.PostCollectionRemoveEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import pl.touk.widerest.api.common.HibernateListeners;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnit;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/*
+    Principals resolved from the 'sub' claim, so a request with a known token does not have to load the customer
+    (or admin user) and its roles again.
+
+    Entries are dropped after a committed change of the user, its roles or (for admin users) any role or permission.
+    The TTL bounds anything these listeners cannot see, e.g. changes made directly in the database.
+
+    A change committed while a principal is being loaded would be missed by the invalidation, so every change also
+    records its sequence number under the id it affects, and a principal whose id has changed since its load started
+    is returned but not cached.
+ */
+@Component
+@ManagedResource(objectName = "pl.touk.widerest:type=PrincipalCache")
+public class PrincipalCache implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener,
+        PostCollectionRecreateEventListener, PostCollectionUpdateEventListener, PostCollectionRemoveEventListener {
+
+    @Value("${widerest.oauth2.principal-cache.size:10000}")
+    protected long maximumSize;
+
+    @Value("${widerest.oauth2.principal-cache.ttl:60}")
+    protected long timeToLiveSeconds;
+
+    @PersistenceUnit(unitName = "blPU")
+    protected EntityManagerFactory entityManagerFactory;
+
+    private static final String ALL_ADMINS = "admins";
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private Cache<String, UserDetails> principals;
+
+    /* Sequence number of the last change, by customer:<id>, admin:<id> or admins */
+    private Cache<String, Long> changes;
+
+    @PostConstruct
+    public void init() {
+        principals = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLiveSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+
+        changes = CacheBuilder.newBuilder()
+                .expireAfterWrite(timeToLiveSeconds, TimeUnit.SECONDS)
+                .build();
+
+        /*
+            Roles of an admin user are a plain many-to-many, there are no post commit events for collections - these
+            fire on flush and are deferred to the commit, see onCollectionChange
+         */
+        HibernateListeners.register(entityManagerFactory, this,
+                EventType.POST_COMMIT_INSERT,
+                EventType.POST_COMMIT_UPDATE,
+                EventType.POST_COMMIT_DELETE,
+                EventType.POST_COLLECTION_RECREATE,
+                EventType.POST_COLLECTION_UPDATE,
+                EventType.POST_COLLECTION_REMOVE);
+    }
+
+    /* Exceptions of the loader (e.g. UsernameNotFoundException) are passed as they are */
+    public UserDetails get(final String subject, final Supplier<UserDetails> loader) {
+        final UserDetails cached = principals.getIfPresent(subject);
+        if (cached != null) {
+            return cached;
+        }
+
+        final long loadStarted = sequence.get();
+        final UserDetails loaded = loader.get();
+        if (changeKeys(loaded).stream().allMatch(key -> Optional.ofNullable(changes.getIfPresent(key)).orElse(0L) <= loadStarted)) {
+            principals.put(subject, loaded);
+        }
+        return loaded;
+    }
+
+    protected List<String> changeKeys(final UserDetails principal) {
+        if (principal instanceof CustomerUserDetails) {
+            return Collections.singletonList(customerKey(((CustomerUserDetails) principal).getId()));
+        } else if (principal instanceof AdminUserDetails) {
+            return Arrays.asList(adminKey(((AdminUserDetails) principal).getId()), ALL_ADMINS);
+        }
+        return Collections.emptyList();
+    }
+
+    @ManagedOperation
+    public void invalidateAll() {
+        principals.invalidateAll();
+    }
+
+    @ManagedAttribute
+    public long getHitCount() {
+        return principals.stats().hitCount();
+    }
+
+    @ManagedAttribute
+    public long getMissCount() {
+        return principals.stats().missCount();
+    }
+
+    @ManagedAttribute
+    public long getSize() {
+        return principals.size();
+    }
+
+    @Override
+    public void onPostInsert(final PostInsertEvent event) {
+        onChange(event.getEntity());
+    }
+
+    @Override
+    public void onPostUpdate(final PostUpdateEvent event) {
+        onChange(event.getEntity());
+    }
+
+    @Override
+    public void onPostDelete(final PostDeleteEvent event) {
+        onChange(event.getEntity());
+    }
+
+    @Override
+    public void onPostRecreateCollection(final PostCollectionRecreateEvent event) {
+        onCollectionChange(event);
+    }
+
+    @Override
+    public void onPostUpdateCollection(final PostCollectionUpdateEvent event) {
+        onCollectionChange(event);
+    }
+
+    @Override
+    public void onPostRemoveCollection(final PostCollectionRemoveEvent event) {
+        onCollectionChange(event);
+    }
+
+    /* Invalidated only after the commit, or a load in between could cache the roles being replaced */
+    protected void onCollectionChange(final AbstractCollectionEvent event) {
+        final Object owner = event.getAffectedOwnerOrNull();
+        if (owner instanceof AdminUser) {
+            invalidateAfterCommit(() -> onChange(owner));
+        }
+    }
+
+    protected void invalidateAfterCommit(final Runnable invalidate) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    invalidate.run();
+                }
+            });
+        } else {
+            invalidate.run();
+        }
+    }
+
+    protected void onChange(final Object entity) {
+        if (entity instanceof Customer) {
+            invalidateCustomer(((Customer) entity).getId());
+        } else if (entity instanceof CustomerRole) {
+            invalidateCustomer(((CustomerRole) entity).getCustomer().getId());
+        } else if (entity instanceof AdminUser) {
+            final Long adminUserId = ((AdminUser) entity).getId();
+            changes.put(adminKey(adminUserId), sequence.incrementAndGet());
+            invalidateIf(principal -> principal instanceof AdminUserDetails
+                    && Objects.equals(((AdminUserDetails) principal).getId(), adminUserId));
+        } else if (entity instanceof AdminRole || entity instanceof AdminPermission) {
+            changes.put(ALL_ADMINS, sequence.incrementAndGet());
+            invalidateIf(principal -> principal instanceof AdminUserDetails);
+        }
+    }
+
+    protected void invalidateCustomer(final Long customerId) {
+        changes.put(customerKey(customerId), sequence.incrementAndGet());
+        invalidateIf(principal -> principal instanceof CustomerUserDetails
+                && Objects.equals(((CustomerUserDetails) principal).getId(), customerId));
+    }
+
+    /* Keyed by subject, not by id - a linear scan is fine, writes are rare compared to reads */
+    protected void invalidateIf(final Predicate<UserDetails> predicate) {
+        principals.asMap().values().removeIf(predicate);
+    }
+
+    private static String customerKey(final Long customerId) {
+        return "customer:" + customerId;
+    }
+
+    private static String adminKey(final Long adminUserId) {
+        return "admin:" + adminUserId;
+    }
+}
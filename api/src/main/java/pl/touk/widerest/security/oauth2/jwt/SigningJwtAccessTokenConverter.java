@@ -0,0 +1,66 @@
+package pl.touk.widerest.security.oauth2.jwt;
+
+import org.springframework.security.jwt.crypto.sign.Signer;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.util.JsonParser;
+import org.springframework.security.oauth2.common.util.JsonParserFactory;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.util.Base64;
+
+/*
+    JwtHelper.encode() (spring-security-jwt 1.0.x) names the JWS algorithm after Signer.algorithm() and knows
+    HMAC and RSA only - for any other signer it throws IllegalArgumentException. Tokens signed with EcdsaSigner get
+    their JWS header built here instead, verification goes through JwtHelper as usual.
+ */
+public class SigningJwtAccessTokenConverter extends JwtAccessTokenConverter {
+
+    private final JsonParser jsonParser = JsonParserFactory.create();
+
+    private EcdsaSigner ecdsaSigner;
+
+    @Override
+    public void setSigner(final Signer signer) {
+        super.setSigner(signer);
+        ecdsaSigner = signer instanceof EcdsaSigner ? (EcdsaSigner) signer : null;
+    }
+
+    @Override
+    public void setKeyPair(final KeyPair keyPair) {
+        super.setKeyPair(keyPair);
+        ecdsaSigner = null;
+    }
+
+    @Override
+    public void setSigningKey(final String key) {
+        super.setSigningKey(key);
+        ecdsaSigner = null;
+    }
+
+    @Override
+    protected String encode(final OAuth2AccessToken accessToken, final OAuth2Authentication authentication) {
+        if (ecdsaSigner == null) {
+            return super.encode(accessToken, authentication);
+        }
+
+        final String content;
+        try {
+            content = jsonParser.formatMap(getAccessTokenConverter().convertAccessToken(accessToken, authentication));
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot convert access token to JSON", e);
+        }
+
+        final String header = "{\"alg\":\"" + ecdsaSigner.jwsAlgorithm() + "\",\"typ\":\"JWT\"}";
+        final String signingInput = base64Url(header.getBytes(StandardCharsets.UTF_8)) + "."
+                + base64Url(content.getBytes(StandardCharsets.UTF_8));
+
+        return signingInput + "." + base64Url(ecdsaSigner.sign(signingInput.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String base64Url(final byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
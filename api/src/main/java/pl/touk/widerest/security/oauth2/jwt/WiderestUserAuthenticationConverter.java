@@ -5,21 +5,30 @@ import org.broadleafcommerce.openadmin.server.security.service.AdminUserDetailsS
 import org.broadleafcommerce.profile.core.service.CustomerUserDetails;
 import org.broadleafcommerce.profile.core.service.UserDetailsServiceImpl;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.oauth2.provider.token.AccessTokenConverter;
 import org.springframework.security.oauth2.provider.token.UserAuthenticationConverter;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
+import pl.touk.widerest.security.authentication.AnonymousUserDetailsService;
 import pl.touk.widerest.security.authentication.BackofficeAuthenticationToken;
 import pl.touk.widerest.security.authentication.SiteAuthenticationToken;
+import pl.touk.widerest.security.oauth2.Scope;
 
+import javax.annotation.Resource;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
@@ -31,8 +40,13 @@ public class WiderestUserAuthenticationConverter implements UserAuthenticationCo
 
     public static final String BACKOFFICE_SUB_PREFIX = "backoffice";
     public static final String SITE_SUB_PREFIX = "site";
+    public static final String ANONYMOUS_SUB_PREFIX = "anonymous";
     public static final String DELIMITER = "/";
 
+    public static final String UID = "uid";
+
+    private static final String NO_PASSWORD = "";
+
     @Autowired(required = false)
     protected AdminUserDetailsServiceImpl backofficeUserDetailsService;
 
@@ -42,33 +56,62 @@ public class WiderestUserAuthenticationConverter implements UserAuthenticationCo
     @PersistenceContext(unitName = "blPU")
     protected EntityManager em;
 
+    @Resource
+    protected PrincipalCache principalCache;
+
+    @Resource
+    protected AnonymousUserDetailsService anonymousUserDetailsService;
+
+    @Value("${widerest.oauth2.self-contained-scopes:}")
+    protected String[] selfContainedScopes;
+
     public Map<String, ?> convertUserAuthentication(Authentication authentication) {
         final Map<String, Object> claims = new LinkedHashMap<String, Object>();
         final Object principal = authentication.getPrincipal();
 
         if (principal instanceof AdminUserDetails) {
             claims.put(SUB, BACKOFFICE_SUB_PREFIX + DELIMITER + ((AdminUserDetails) principal).getUsername());
+            if (isSelfContained(Scope.STAFF)) {
+                putPrincipalClaims(claims, ((AdminUserDetails) principal).getId(), (UserDetails) principal);
+            }
         } else if (principal instanceof CustomerUserDetails){
-            claims.put(SUB, SITE_SUB_PREFIX + DELIMITER + ((CustomerUserDetails) principal).getUsername());
+            final CustomerUserDetails customerUserDetails = (CustomerUserDetails) principal;
+            claims.put(SUB, isAnonymous(customerUserDetails)
+                    ? ANONYMOUS_SUB_PREFIX + DELIMITER + customerUserDetails.getId()
+                    : SITE_SUB_PREFIX + DELIMITER + customerUserDetails.getUsername());
+            if (isSelfContained(Scope.CUSTOMER) || isSelfContained(Scope.CUSTOMER_REGISTERED)) {
+                putPrincipalClaims(claims, ((CustomerUserDetails) principal).getId(), (UserDetails) principal);
+            }
         }
 
         return claims;
     }
 
-    @Transactional
+    /* SUPPORTS - no transaction (and no connection) unless a principal really has to be loaded */
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Authentication extractAuthentication(Map<String, ?> claims) {
 
         return Optional.ofNullable(claims.get(SUB))
                 .map(String.class::cast)
-                .map(subject -> StringUtils.split(subject, DELIMITER))
-                .map(subject -> {
+                .map(sub -> {
+                            final String[] subject = StringUtils.split(sub, DELIMITER);
+
+                            if (isSelfContained(claims)) {
+                                return extractSelfContainedAuthentication(subject[0], claims);
+                            }
+
                             if (siteUserDetailsService != null && SITE_SUB_PREFIX.equals(subject[0])) {
-                                UserDetails userDetails = siteUserDetailsService.loadUserByUsername(String.valueOf(subject[1]));
+                                UserDetails userDetails = principalCache.get(sub, () -> siteUserDetailsService.loadUserByUsername(String.valueOf(subject[1])));
+                                return new SiteAuthenticationToken(userDetails, userDetails.getPassword(), userDetails.getAuthorities());
+                            }
+
+                            if (ANONYMOUS_SUB_PREFIX.equals(subject[0])) {
+                                UserDetails userDetails = principalCache.get(sub, () -> loadAnonymousUser(subject[1]));
                                 return new SiteAuthenticationToken(userDetails, userDetails.getPassword(), userDetails.getAuthorities());
                             }
 
                             if (backofficeUserDetailsService != null && BACKOFFICE_SUB_PREFIX.equals(subject[0])) {
-                                UserDetails userDetails = backofficeUserDetailsService.loadUserByUsername(String.valueOf(subject[1]));
+                                UserDetails userDetails = principalCache.get(sub, () -> backofficeUserDetailsService.loadUserByUsername(String.valueOf(subject[1])));
                                 return new BackofficeAuthenticationToken(userDetails, userDetails.getPassword(), userDetails.getAuthorities());
                             }
 
@@ -80,6 +123,70 @@ public class WiderestUserAuthenticationConverter implements UserAuthenticationCo
 
     }
 
+    /*
+        Anonymous customers are persisted on their first write only (see AnonymousUserDetailsService), so their
+        subject is the reserved customer id rather than a username. Resolved by id and never by username, as an
+        all-digit username could belong to anybody else.
+     */
+    protected static boolean isAnonymous(final CustomerUserDetails customerUserDetails) {
+        return String.valueOf(customerUserDetails.getId()).equals(customerUserDetails.getUsername());
+    }
+
+    protected UserDetails loadAnonymousUser(final String customerId) {
+        try {
+            return anonymousUserDetailsService.loadAnonymousUserDetails(Long.valueOf(customerId));
+        } catch (NumberFormatException e) {
+            throw new UsernameNotFoundException("Invalid anonymous customer id: " + customerId);
+        }
+    }
+
+    /*
+        Self-contained tokens carry everything needed to rebuild the principal, so requests made with them do not
+        touch the database at all. Roles changed after the token was issued are picked up with the next token only,
+        which widerest.oauth2.token-expiration keeps short.
+
+        Used only if every scope of the token is listed in widerest.oauth2.self-contained-scopes, so e.g. staff tokens
+        can still be verified against the database.
+     */
+    protected boolean isSelfContained(final Map<String, ?> claims) {
+        final Collection<?> scopes = Optional.ofNullable(claims.get(AccessTokenConverter.SCOPE))
+                .filter(Collection.class::isInstance)
+                .map(Collection.class::cast)
+                .orElse(Collections.emptyList());
+
+        return claims.containsKey(UID) && !scopes.isEmpty()
+                && scopes.stream().map(String::valueOf).allMatch(Arrays.asList(selfContainedScopes)::contains);
+    }
+
+    protected boolean isSelfContained(final Scope scope) {
+        return Arrays.asList(selfContainedScopes).contains(scope.toString());
+    }
+
+    protected Authentication extractSelfContainedAuthentication(final String subjectPrefix, final Map<String, ?> claims) {
+        final Long id = ((Number) claims.get(UID)).longValue();
+        final String username = (String) claims.get(USERNAME);
+        final Collection<? extends GrantedAuthority> authorities =
+                Optional.ofNullable(getAuthorities(claims)).orElse(Collections.emptyList());
+
+        if (SITE_SUB_PREFIX.equals(subjectPrefix) || ANONYMOUS_SUB_PREFIX.equals(subjectPrefix)) {
+            final UserDetails userDetails = new CustomerUserDetails(id, username, NO_PASSWORD, true, true, true, true, authorities);
+            return new SiteAuthenticationToken(userDetails, NO_PASSWORD, authorities);
+        }
+
+        if (BACKOFFICE_SUB_PREFIX.equals(subjectPrefix)) {
+            final UserDetails userDetails = new AdminUserDetails(id, username, NO_PASSWORD, true, true, true, true, authorities);
+            return new BackofficeAuthenticationToken(userDetails, NO_PASSWORD, authorities);
+        }
+
+        return new UsernamePasswordAuthenticationToken(username, "N/A", authorities);
+    }
+
+    private static void putPrincipalClaims(final Map<String, Object> claims, final Long id, final UserDetails userDetails) {
+        claims.put(UID, id);
+        claims.put(USERNAME, userDetails.getUsername());
+        claims.put(AUTHORITIES, AuthorityUtils.authorityListToSet(userDetails.getAuthorities()));
+    }
+
     private Collection<? extends GrantedAuthority> getAuthorities(Map<String, ?> map) {
         if (!map.containsKey(AUTHORITIES)) {
             return null; // TODO emptyCollection?
@@ -0,0 +1,21 @@
+-- Tables of widerest's own entities in blPU.
+--
+-- blPU runs with hibernate.hbm2ddl.auto=validate outside of the development environment, so these have to exist
+-- before the first start. Types are HSQLDB / ANSI - use LONGBLOB (MySQL) or BYTEA (PostgreSQL) for BLOB columns.
+
+-- Authorization codes, shared by all nodes (JpaAuthorizationCodeServices)
+CREATE TABLE WD_OAUTH_CODE (
+    CODE VARCHAR(256) NOT NULL,
+    AUTHENTICATION BLOB NOT NULL,
+    EXPIRES_AT TIMESTAMP NOT NULL,
+    PRIMARY KEY (CODE)
+);
+CREATE INDEX WD_OAUTH_CODE_EXPIRES_INDEX ON WD_OAUTH_CODE (EXPIRES_AT);
+
+-- Catalog revision behind the ETags of catalog resources (CatalogRevision), a single row
+CREATE TABLE WD_CATALOG_REVISION (
+    ID BIGINT NOT NULL,
+    REVISION BIGINT NOT NULL,
+    PRIMARY KEY (ID)
+);
+INSERT INTO WD_CATALOG_REVISION (ID, REVISION) VALUES (1, 1);
@@ -0,0 +1,94 @@
+package pl.touk.widerest.api.categories;
+
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+public class CategoryTreeSnapshotTest {
+
+    /*
+              1       5
+             / \     /
+            2   3 --
+             \ /
+              4
+     */
+    private final CategoryTree.Snapshot tree = new CategoryTree.Snapshot(Arrays.asList(
+            node(1L, 2L, 3L),
+            node(2L, 4L),
+            node(3L, 4L, 5L),
+            node(4L),
+            node(5L)
+    ), Instant.now());
+
+    @Test
+    public void shouldIndexCategoriesByLevelTest() {
+        assertThat(ids(tree.getRoots()), equalTo(Arrays.asList(1L)));
+        assertThat(ids(tree.getCategoriesAtLevel(1)), equalTo(Arrays.asList(2L, 3L)));
+        assertThat(ids(tree.getCategoriesAtLevel(2)), equalTo(Arrays.asList(4L, 5L)));
+        assertThat(ids(tree.getCategoriesAtLevel(3)), equalTo(Arrays.<Long>asList()));
+        assertThat(ids(tree.getCategoriesAtLevel(-1)), equalTo(Arrays.<Long>asList()));
+    }
+
+    @Test
+    public void shouldIndexDescendantsByShortestDepthTest() {
+        assertThat(ids(tree.getDescendants(tree.getNode(1L).get(), 1)), equalTo(Arrays.asList(2L, 3L)));
+        assertThat(ids(tree.getDescendants(tree.getNode(1L).get(), 2)), equalTo(Arrays.asList(2L, 3L, 4L, 5L)));
+        assertThat(ids(tree.getDescendants(tree.getNode(4L).get(), 10)), equalTo(Arrays.<Long>asList()));
+    }
+
+    @Test
+    public void shouldDeriveParentsFromChildrenTest() {
+        assertThat(tree.getParentIds(tree.getNode(4L).get()), equalTo(Arrays.asList(2L, 3L)));
+    }
+
+    @Test
+    public void shouldReindexOnlyPastChangedLinksTest() {
+        assertThat(ids(tree.getDescendants(tree.getNode(1L).get(), 2)), equalTo(Arrays.asList(2L, 3L, 4L, 5L)));
+        assertThat(ids(tree.getDescendants(tree.getNode(3L).get(), 1)), equalTo(Arrays.asList(4L, 5L)));
+        assertThat(ids(tree.getRoots()), equalTo(Arrays.asList(1L)));
+
+        final CategoryTree.Snapshot renamed = tree.patch(Collections.singletonMap(5L, node(5L)), Collections.emptySet());
+        assertThat(ids(renamed.getDescendants(renamed.getNode(1L).get(), 2)), equalTo(Arrays.asList(2L, 3L, 4L, 5L)));
+
+        final Map<Long, CategoryNode> unlinked = new HashMap<>();
+        unlinked.put(2L, node(2L));
+        unlinked.put(3L, node(3L, 5L));
+        final CategoryTree.Snapshot patched = renamed.patch(unlinked, Collections.singleton(4L));
+
+        assertThat(ids(patched.getDescendants(patched.getNode(1L).get(), 2)), equalTo(Arrays.asList(2L, 3L, 5L)));
+        assertThat(ids(patched.getDescendants(patched.getNode(3L).get(), 1)), equalTo(Arrays.asList(5L)));
+        assertThat(ids(patched.getCategoriesAtLevel(2)), equalTo(Arrays.asList(5L)));
+        assertThat(patched.getNode(4L).isPresent(), equalTo(false));
+    }
+
+    @Test
+    public void shouldSurviveCyclesTest() {
+        final CategoryTree.Snapshot cyclic = new CategoryTree.Snapshot(Arrays.asList(
+                node(1L, 2L),
+                node(2L, 3L),
+                node(3L, 2L)
+        ), Instant.now());
+
+        assertThat(ids(cyclic.getDescendants(cyclic.getNode(1L).get(), Integer.MAX_VALUE)), equalTo(Arrays.asList(2L, 3L)));
+        assertThat(ids(cyclic.getDescendants(cyclic.getNode(2L).get(), Integer.MAX_VALUE)), equalTo(Arrays.asList(3L)));
+        assertThat(ids(cyclic.getCategoriesAtLevel(1)), equalTo(Arrays.asList(2L)));
+    }
+
+    private static CategoryNode node(final Long id, final Long... childIds) {
+        return CategoryNode.builder().id(id).childIds(Arrays.asList(childIds)).build();
+    }
+
+    private static List<Long> ids(final List<CategoryNode> nodes) {
+        return nodes.stream().map(CategoryNode::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,47 @@
+package pl.touk.widerest.api.categories;
+
+import org.broadleafcommerce.core.catalog.service.CatalogService;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CategoryTreeTest {
+
+    private final CategoryTree categoryTree = new CategoryTree();
+
+    @Before
+    public void setUp() {
+        categoryTree.catalogService = mock(CatalogService.class);
+        categoryTree.timeToLiveSeconds = 300;
+        when(categoryTree.catalogService.findAllCategories()).thenReturn(Collections.emptyList());
+    }
+
+    @Test
+    public void shouldNotRebuildSnapshotRebuiltWhileWaitingForLockTest() {
+        final CategoryTree.Snapshot snapshot = categoryTree.snapshot();
+
+        /* a caller that saw the previous, stale snapshot */
+        assertThat(categoryTree.rebuild(), sameInstance(snapshot));
+
+        assertThat(categoryTree.getRebuilds(), equalTo(1L));
+        verify(categoryTree.catalogService, times(1)).findAllCategories();
+    }
+
+    @Test
+    public void shouldRebuildInvalidatedSnapshotTest() {
+        categoryTree.snapshot();
+        categoryTree.invalidate();
+        categoryTree.snapshot();
+
+        assertThat(categoryTree.getRebuilds(), equalTo(2L));
+    }
+}
@@ -0,0 +1,32 @@
+package pl.touk.widerest.api.common;
+
+import org.junit.Test;
+
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+public class KeysetCursorTest {
+
+    @Test
+    public void shouldDecodeEncodedIdTest() {
+        assertThat(KeysetCursor.decode(KeysetCursor.encode(2008L)), equalTo(Optional.of(2008L)));
+    }
+
+    @Test
+    public void shouldTreatEmptyCursorAsBeginningTest() {
+        assertThat(KeysetCursor.decode(""), equalTo(Optional.empty()));
+        assertThat(KeysetCursor.decode(null), equalTo(Optional.empty()));
+    }
+
+    @Test(expected = InvalidCursorException.class)
+    public void shouldRejectMalformedCursorTest() {
+        KeysetCursor.decode("not-a-cursor");
+    }
+
+    @Test(expected = InvalidCursorException.class)
+    public void shouldRejectCursorWithoutIdTest() {
+        KeysetCursor.decode(KeysetCursor.encode(1L).substring(0, 3));
+    }
+}
@@ -0,0 +1,82 @@
+package pl.touk.widerest.api.orders.fulfillments;
+
+import org.broadleafcommerce.common.money.Money;
+import org.broadleafcommerce.common.util.WeightUnitOfMeasureType;
+import org.broadleafcommerce.core.catalog.domain.Sku;
+import org.broadleafcommerce.core.order.domain.FulfillmentOption;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static pl.touk.widerest.api.orders.fulfillments.FulfillmentCostFixtures.bandedPriceOption;
+import static pl.touk.widerest.api.orders.fulfillments.FulfillmentCostFixtures.bandedWeightOption;
+import static pl.touk.widerest.api.orders.fulfillments.FulfillmentCostFixtures.estimateWithProviders;
+import static pl.touk.widerest.api.orders.fulfillments.FulfillmentCostFixtures.fixedPriceOption;
+import static pl.touk.widerest.api.orders.fulfillments.FulfillmentCostFixtures.sku;
+import static pl.touk.widerest.api.orders.fulfillments.FulfillmentCostFixtures.temporaryFulfillmentGroup;
+
+/**
+ * Compares pricing a single product's fulfillment options through a temporary fulfillment group, order and order
+ * items handed to the pricing providers with {@link FulfillmentCostEstimator}. Setup checks both give the same prices.
+ * Run with {@code main} from the test classpath.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class FulfillmentCostEstimatorBenchmark {
+
+    private final FulfillmentCostEstimator estimator = new FulfillmentCostEstimator();
+
+    private Set<FulfillmentOption> options;
+
+    private Sku sku;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        options = new HashSet<>(Arrays.asList(
+                fixedPriceOption(1L, "9.99"),
+                bandedPriceOption(2L, false, "0", "15.00", "50", "5.00", "200", "0"),
+                bandedWeightOption(3L, "0", "7.00", "10", "12.00", "20", "20.00")
+        ));
+        sku = sku("75.25", "5", WeightUnitOfMeasureType.KILOGRAMS);
+
+        if (!temporaryFulfillmentGroupPrices().equals(estimatorPrices())) {
+            throw new IllegalStateException("Estimator prices differ from the pricing providers");
+        }
+    }
+
+    @Benchmark
+    public Map<FulfillmentOption, Money> temporaryFulfillmentGroupPrices() throws Exception {
+        return estimateWithProviders(temporaryFulfillmentGroup(sku), options);
+    }
+
+    @Benchmark
+    public Map<FulfillmentOption, Money> estimatorPrices() {
+        return estimator.estimate(Collections.singletonList(FulfillmentCostItem.of(sku, 1)), options, null);
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(FulfillmentCostEstimatorBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,72 @@
+package pl.touk.widerest.api.orders.fulfillments;
+
+import org.broadleafcommerce.common.money.Money;
+import org.broadleafcommerce.common.util.WeightUnitOfMeasureType;
+import org.broadleafcommerce.core.catalog.domain.Sku;
+import org.broadleafcommerce.core.order.domain.FulfillmentOption;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static pl.touk.widerest.api.orders.fulfillments.FulfillmentCostFixtures.bandedPriceOption;
+import static pl.touk.widerest.api.orders.fulfillments.FulfillmentCostFixtures.bandedWeightOption;
+import static pl.touk.widerest.api.orders.fulfillments.FulfillmentCostFixtures.estimateWithProviders;
+import static pl.touk.widerest.api.orders.fulfillments.FulfillmentCostFixtures.fixedPriceOption;
+import static pl.touk.widerest.api.orders.fulfillments.FulfillmentCostFixtures.sku;
+import static pl.touk.widerest.api.orders.fulfillments.FulfillmentCostFixtures.temporaryFulfillmentGroup;
+
+public class FulfillmentCostEstimatorTest {
+
+    private final FulfillmentCostEstimator estimator = new FulfillmentCostEstimator();
+
+    private final FulfillmentOption fixed = fixedPriceOption(1L, "9.99");
+
+    private final FulfillmentOption byPrice = bandedPriceOption(2L, false, "0", "15.00", "50", "5.00", "50", "4.50", "200", "0");
+
+    private final FulfillmentOption byPercentage = bandedPriceOption(3L, false, "0", "0.1%", "100", "0.05%");
+
+    private final FulfillmentOption byWeight = bandedWeightOption(4L, "0", "7.00", "10", "12.00", "20", "20.00");
+
+    private final FulfillmentOption withFlatRates = bandedPriceOption(5L, true, "0", "15.00");
+
+    private final Set<FulfillmentOption> options = new HashSet<>(Arrays.asList(fixed, byPrice, byPercentage, byWeight, withFlatRates));
+
+    @Test
+    public void shouldPriceLikePricingProvidersTest() throws Exception {
+        for (Sku sku : Arrays.asList(
+                sku("10.00", null, null),
+                sku("50.00", "9.99", WeightUnitOfMeasureType.POUNDS),
+                sku("75.25", "5", WeightUnitOfMeasureType.KILOGRAMS),
+                sku("120.00", "10", WeightUnitOfMeasureType.KILOGRAMS, withFlatRates, "2.50"),
+                sku("250.00", "25", null, byPrice, "1.00")
+        )) {
+            assertThat(estimate(sku), equalTo(estimateWithProviders(temporaryFulfillmentGroup(sku), options)));
+        }
+    }
+
+    @Test
+    public void shouldPickCheaperOfBandsWithSameMinimumTest() {
+        assertThat(estimate(sku("60.00", null, null)).get(byPrice), equalTo(new Money("4.50")));
+    }
+
+    @Test
+    public void shouldAddFlatRateInsteadOfBandTest() {
+        assertThat(estimate(sku("60.00", null, null, withFlatRates, "2.50")).get(withFlatRates), equalTo(new Money("2.50")));
+    }
+
+    @Test
+    public void shouldConvertKilogramsToPoundsForWeightBandsTest() {
+        assertThat(estimate(sku("10.00", "5", WeightUnitOfMeasureType.KILOGRAMS)).get(byWeight), equalTo(new Money("12.00")));
+        assertThat(estimate(sku("10.00", "5", WeightUnitOfMeasureType.POUNDS)).get(byWeight), equalTo(new Money("7.00")));
+    }
+
+    private Map<FulfillmentOption, Money> estimate(final Sku sku) {
+        return estimator.estimate(Collections.singletonList(FulfillmentCostItem.of(sku, 1)), options, null);
+    }
+}
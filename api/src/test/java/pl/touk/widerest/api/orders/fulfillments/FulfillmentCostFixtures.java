@@ -0,0 +1,147 @@
+package pl.touk.widerest.api.orders.fulfillments;
+
+import org.broadleafcommerce.common.money.Money;
+import org.broadleafcommerce.common.util.WeightUnitOfMeasureType;
+import org.broadleafcommerce.common.vendor.service.exception.FulfillmentPriceException;
+import org.broadleafcommerce.core.catalog.domain.Sku;
+import org.broadleafcommerce.core.catalog.domain.SkuImpl;
+import org.broadleafcommerce.core.catalog.domain.Weight;
+import org.broadleafcommerce.core.order.domain.DiscreteOrderItem;
+import org.broadleafcommerce.core.order.domain.DiscreteOrderItemImpl;
+import org.broadleafcommerce.core.order.domain.FulfillmentGroup;
+import org.broadleafcommerce.core.order.domain.FulfillmentGroupImpl;
+import org.broadleafcommerce.core.order.domain.FulfillmentGroupItem;
+import org.broadleafcommerce.core.order.domain.FulfillmentGroupItemImpl;
+import org.broadleafcommerce.core.order.domain.FulfillmentOption;
+import org.broadleafcommerce.core.order.domain.Order;
+import org.broadleafcommerce.core.order.domain.OrderImpl;
+import org.broadleafcommerce.core.order.fulfillment.domain.BandedPriceFulfillmentOption;
+import org.broadleafcommerce.core.order.fulfillment.domain.BandedPriceFulfillmentOptionImpl;
+import org.broadleafcommerce.core.order.fulfillment.domain.BandedWeightFulfillmentOption;
+import org.broadleafcommerce.core.order.fulfillment.domain.BandedWeightFulfillmentOptionImpl;
+import org.broadleafcommerce.core.order.fulfillment.domain.FixedPriceFulfillmentOption;
+import org.broadleafcommerce.core.order.fulfillment.domain.FixedPriceFulfillmentOptionImpl;
+import org.broadleafcommerce.core.order.fulfillment.domain.FulfillmentBand;
+import org.broadleafcommerce.core.order.fulfillment.domain.FulfillmentPriceBand;
+import org.broadleafcommerce.core.order.fulfillment.domain.FulfillmentPriceBandImpl;
+import org.broadleafcommerce.core.order.fulfillment.domain.FulfillmentWeightBand;
+import org.broadleafcommerce.core.order.fulfillment.domain.FulfillmentWeightBandImpl;
+import org.broadleafcommerce.core.order.service.type.FulfillmentBandResultAmountType;
+import org.broadleafcommerce.core.pricing.service.fulfillment.provider.BandedFulfillmentPricingProvider;
+import org.broadleafcommerce.core.pricing.service.fulfillment.provider.FixedPriceFulfillmentPricingProvider;
+import org.broadleafcommerce.core.pricing.service.fulfillment.provider.FulfillmentPricingProvider;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Options, SKUs and the temporary fulfillment group {@link FulfilmentServiceProxy} used to build for the pricing
+ * providers - shared by {@link FulfillmentCostEstimatorTest} and {@link FulfillmentCostEstimatorBenchmark}.
+ */
+final class FulfillmentCostFixtures {
+
+    private FulfillmentCostFixtures() {
+    }
+
+    static FixedPriceFulfillmentOption fixedPriceOption(final long id, final String price) {
+        final FixedPriceFulfillmentOption option = new FixedPriceFulfillmentOptionImpl();
+        option.setId(id);
+        option.setPrice(new Money(price));
+        return option;
+    }
+
+    static BandedPriceFulfillmentOption bandedPriceOption(final long id, final boolean useFlatRates, final String... minimumsAndRates) {
+        final BandedPriceFulfillmentOption option = new BandedPriceFulfillmentOptionImpl();
+        option.setId(id);
+        option.setUseFlatRates(useFlatRates);
+        for (int i = 0; i < minimumsAndRates.length; i += 2) {
+            final FulfillmentPriceBand band = new FulfillmentPriceBandImpl();
+            band.setRetailPriceMinimumAmount(new BigDecimal(minimumsAndRates[i]));
+            setResult(band, minimumsAndRates[i + 1]);
+            band.setOption(option);
+            option.getBands().add(band);
+        }
+        return option;
+    }
+
+    static BandedWeightFulfillmentOption bandedWeightOption(final long id, final String... minimumsAndRates) {
+        final BandedWeightFulfillmentOption option = new BandedWeightFulfillmentOptionImpl();
+        option.setId(id);
+        option.setUseFlatRates(false);
+        for (int i = 0; i < minimumsAndRates.length; i += 2) {
+            final FulfillmentWeightBand band = new FulfillmentWeightBandImpl();
+            band.setMinimumWeight(new BigDecimal(minimumsAndRates[i]));
+            setResult(band, minimumsAndRates[i + 1]);
+            band.setOption(option);
+            option.getBands().add(band);
+        }
+        return option;
+    }
+
+    /* "12.50" is a rate, "0.1%" a percentage of the retail total (as a fraction) */
+    private static void setResult(final FulfillmentBand band, final String result) {
+        if (result.endsWith("%")) {
+            band.setResultAmount(new BigDecimal(result.substring(0, result.length() - 1)));
+            band.setResultAmountType(FulfillmentBandResultAmountType.PERCENTAGE);
+        } else {
+            band.setResultAmount(new BigDecimal(result));
+            band.setResultAmountType(FulfillmentBandResultAmountType.RATE);
+        }
+    }
+
+    static Sku sku(final String price, final String weight, final WeightUnitOfMeasureType unit, final Object... flatRates) {
+        final Sku sku = new SkuImpl();
+        sku.setRetailPrice(new Money(price));
+
+        if (weight != null) {
+            final Weight skuWeight = new Weight();
+            skuWeight.setWeight(new BigDecimal(weight));
+            skuWeight.setWeightUnitOfMeasure(unit);
+            sku.setWeight(skuWeight);
+        }
+
+        final Map<FulfillmentOption, BigDecimal> rates = new HashMap<>();
+        for (int i = 0; i < flatRates.length; i += 2) {
+            rates.put((FulfillmentOption) flatRates[i], new BigDecimal((String) flatRates[i + 1]));
+        }
+        sku.setFulfillmentFlatRates(rates);
+
+        return sku;
+    }
+
+    /* What FulfilmentServiceProxy.createTemporaryFulfillmentGroupWithSingleItem() builds through the DAOs */
+    static FulfillmentGroup temporaryFulfillmentGroup(final Sku sku) {
+        final FulfillmentGroup fulfillmentGroup = new FulfillmentGroupImpl();
+        final Order order = new OrderImpl();
+        fulfillmentGroup.setOrder(order);
+        order.getFulfillmentGroups().add(fulfillmentGroup);
+
+        final DiscreteOrderItem orderItem = new DiscreteOrderItemImpl();
+        orderItem.setSku(sku);
+        orderItem.setOrder(order);
+        orderItem.setPrice(sku.getPrice());
+
+        final FulfillmentGroupItem fgi = new FulfillmentGroupItemImpl();
+        fgi.setFulfillmentGroup(fulfillmentGroup);
+        fgi.setOrderItem(orderItem);
+        fgi.setQuantity(1);
+
+        fulfillmentGroup.addFulfillmentGroupItem(fgi);
+
+        return fulfillmentGroup;
+    }
+
+    /* What blFulfillmentPricingService does with the default providers */
+    static Map<FulfillmentOption, Money> estimateWithProviders(final FulfillmentGroup fulfillmentGroup, final Set<FulfillmentOption> options)
+            throws FulfillmentPriceException {
+        final Map<FulfillmentOption, Money> prices = new HashMap<>();
+        for (FulfillmentPricingProvider provider : Arrays.asList(
+                new FixedPriceFulfillmentPricingProvider(), new BandedFulfillmentPricingProvider())) {
+            prices.putAll(provider.estimateCostForFulfillmentGroup(fulfillmentGroup, options).getFulfillmentOptionPrices());
+        }
+        return prices;
+    }
+}
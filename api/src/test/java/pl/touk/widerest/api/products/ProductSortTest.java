@@ -0,0 +1,34 @@
+package pl.touk.widerest.api.products;
+
+import org.junit.Test;
+import pl.touk.widerest.api.common.InvalidSortException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNull.nullValue;
+
+public class ProductSortTest {
+
+    @Test
+    public void shouldParsePropertyAndDirectionTest() {
+        assertThat(ProductSort.parse("price,desc"), equalTo(new ProductSort(ProductSort.Property.PRICE, true)));
+        assertThat(ProductSort.parse("Name"), equalTo(new ProductSort(ProductSort.Property.NAME, false)));
+        assertThat(ProductSort.parse("id, asc"), equalTo(new ProductSort(ProductSort.Property.ID, false)));
+    }
+
+    @Test
+    public void shouldTreatEmptySortAsDisplayOrderTest() {
+        assertThat(ProductSort.parse(null), nullValue());
+        assertThat(ProductSort.parse(""), nullValue());
+    }
+
+    @Test(expected = InvalidSortException.class)
+    public void shouldRejectUnknownPropertyTest() {
+        ProductSort.parse("weight");
+    }
+
+    @Test(expected = InvalidSortException.class)
+    public void shouldRejectUnknownDirectionTest() {
+        ProductSort.parse("price,up");
+    }
+}
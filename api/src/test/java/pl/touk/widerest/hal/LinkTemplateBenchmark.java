@@ -0,0 +1,73 @@
+package pl.touk.widerest.hal;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.hateoas.Link;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import pl.touk.widerest.api.products.skus.SkuController;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.hateoas.mvc.ControllerLinkBuilder.linkTo;
+import static org.springframework.hateoas.mvc.ControllerLinkBuilder.methodOn;
+import static pl.touk.widerest.hal.LinkTemplates.linkTemplate;
+
+/**
+ * Compares building a SKU link through a method invocation proxy with expanding a precompiled {@link LinkTemplate}.
+ * Run with {@code main} from the test classpath.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class LinkTemplateBenchmark {
+
+    private static final LinkTemplate SKU_LINK = linkTemplate(SkuController.class, "getSkuById");
+
+    private long productId;
+
+    private long skuId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest("GET", "/v1/products")));
+        productId = 10L;
+        skuId = 20L;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Benchmark
+    public Link methodInvocationLink() {
+        return linkTo(methodOn(SkuController.class).getSkuById(productId, skuId, null, null)).withSelfRel();
+    }
+
+    @Benchmark
+    public Link linkTemplateLink() {
+        return SKU_LINK.linkTo(productId, skuId).withSelfRel();
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(LinkTemplateBenchmark.class.getSimpleName()).build()).run();
+    }
+}
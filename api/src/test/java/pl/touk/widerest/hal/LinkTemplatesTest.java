@@ -0,0 +1,91 @@
+package pl.touk.widerest.hal;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import pl.touk.widerest.api.categories.CategoryController;
+import pl.touk.widerest.api.customers.CustomerController;
+import pl.touk.widerest.api.orders.OrderController;
+import pl.touk.widerest.api.orders.fulfillments.FulfillmentController;
+import pl.touk.widerest.api.orders.payments.PaymentController;
+import pl.touk.widerest.api.products.ProductController;
+import pl.touk.widerest.api.products.skus.SkuController;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.springframework.hateoas.mvc.ControllerLinkBuilder.linkTo;
+import static org.springframework.hateoas.mvc.ControllerLinkBuilder.methodOn;
+import static pl.touk.widerest.hal.LinkTemplates.linkTemplate;
+
+public class LinkTemplatesTest {
+
+    @Before
+    public void setUp() {
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/v1/products");
+        request.setServerName("c4d524aa-75c5-48b0-8474-1be0a458bc1c.localhost");
+        request.setServerPort(8080);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    @After
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    public void shouldProduceSameHrefsAsMethodInvocationLinksTest() {
+        assertThat(
+                linkTemplate(ProductController.class, "readOneProductById").linkTo(10L).withSelfRel(),
+                equalTo(linkTo(methodOn(ProductController.class).readOneProductById(10L, null, null, null)).withSelfRel())
+        );
+        assertThat(
+                linkTemplate(SkuController.class, "getSkuById").linkTo(10L, 20L).withRel("skus"),
+                equalTo(linkTo(methodOn(SkuController.class).getSkuById(10L, 20L, null, null)).withRel("skus"))
+        );
+        assertThat(
+                linkTemplate(SkuController.class, "getSkuByIdQuantity").linkTo(10L, 20L).withRel("quantity"),
+                equalTo(linkTo(methodOn(SkuController.class).getSkuByIdQuantity(10L, 20L)).withRel("quantity"))
+        );
+        assertThat(
+                linkTemplate(CategoryController.class, "readProductsFromCategory").linkTo(30L).withRel("products"),
+                equalTo(linkTo(methodOn(CategoryController.class).readProductsFromCategory(30L, null, null, null, null, null, null, null)).withRel("products"))
+        );
+        assertThat(
+                linkTemplate(CustomerController.class, "createAuthorizationCode").linkTo("40").withRel("authorization"),
+                equalTo(linkTo(methodOn(CustomerController.class).createAuthorizationCode(null, "40")).withRel("authorization"))
+        );
+        assertThat(
+                linkTemplate(FulfillmentController.class, "getOrderFulfillmentById").linkTo(50L, 60L).withSelfRel(),
+                equalTo(linkTo(methodOn(FulfillmentController.class).getOrderFulfillmentById(null, 50L, 60L, null, null)).withSelfRel())
+        );
+        assertThat(
+                linkTemplate(OrderController.class, "getOneItemFromOrder").linkTo(50L, 70L).toUri().toASCIIString(),
+                equalTo(linkTo(methodOn(OrderController.class).getOneItemFromOrder(null, 50L, 70L, null, null)).toUri().toASCIIString())
+        );
+    }
+
+    @Test
+    public void shouldExpandControllerLevelPathVariablesTest() {
+        assertThat(
+                linkTemplate(PaymentController.class, "initiatePayment").linkTo(50L).withRel("payment"),
+                equalTo(linkTo(methodOn(PaymentController.class).initiatePayment(null, null, 50L)).withRel("payment"))
+        );
+    }
+
+    @Test
+    public void shouldResolveTemplateOnceTest() {
+        assertThat(
+                linkTemplate(ProductController.class, "readOneProductById"),
+                sameInstance(linkTemplate(ProductController.class, "readOneProductById"))
+        );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectUnknownHandlerMethodTest() {
+        linkTemplate(ProductController.class, "noSuchMethod");
+    }
+}
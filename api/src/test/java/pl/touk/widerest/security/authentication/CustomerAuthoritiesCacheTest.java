@@ -0,0 +1,72 @@
+package pl.touk.widerest.security.authentication;
+
+import org.broadleafcommerce.profile.core.domain.Customer;
+import org.hibernate.ejb.HibernateEntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.service.spi.ServiceRegistryImplementor;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CustomerAuthoritiesCacheTest {
+
+    private final CustomerAuthoritiesCache customerAuthoritiesCache = new CustomerAuthoritiesCache();
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Before
+    public void setUp() {
+        final HibernateEntityManagerFactory entityManagerFactory = mock(HibernateEntityManagerFactory.class);
+        final SessionFactoryImplementor sessionFactory = mock(SessionFactoryImplementor.class);
+        final ServiceRegistryImplementor serviceRegistry = mock(ServiceRegistryImplementor.class);
+        when(entityManagerFactory.getSessionFactory()).thenReturn(sessionFactory);
+        when(sessionFactory.getServiceRegistry()).thenReturn(serviceRegistry);
+        when(serviceRegistry.getService(EventListenerRegistry.class)).thenReturn(mock(EventListenerRegistry.class));
+
+        customerAuthoritiesCache.entityManagerFactory = entityManagerFactory;
+        customerAuthoritiesCache.maximumSize = 100;
+        customerAuthoritiesCache.timeToLiveSeconds = 300;
+        customerAuthoritiesCache.init();
+    }
+
+    @Test
+    public void shouldCacheLoadedAuthoritiesTest() {
+        customerAuthoritiesCache.get(42L, this::load);
+        customerAuthoritiesCache.get(42L, this::load);
+
+        assertThat(loads.get(), equalTo(1));
+    }
+
+    @Test
+    public void shouldNotCacheAuthoritiesChangedWhileLoadingTest() {
+        customerAuthoritiesCache.get(42L, () -> {
+            final List<GrantedAuthority> loaded = load();
+            customerAuthoritiesCache.onChange(customer(42L));
+            return loaded;
+        });
+        customerAuthoritiesCache.get(42L, this::load);
+
+        assertThat(loads.get(), equalTo(2));
+    }
+
+    private List<GrantedAuthority> load() {
+        loads.incrementAndGet();
+        return AuthorityUtils.createAuthorityList("ROLE_USER");
+    }
+
+    private static Customer customer(final Long id) {
+        final Customer customer = mock(Customer.class);
+        when(customer.getId()).thenReturn(id);
+        return customer;
+    }
+}
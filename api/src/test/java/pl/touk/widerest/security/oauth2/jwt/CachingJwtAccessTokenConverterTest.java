@@ -0,0 +1,43 @@
+package pl.touk.widerest.security.oauth2.jwt;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+
+import java.security.KeyPairGenerator;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+public class CachingJwtAccessTokenConverterTest {
+
+    private final CachingJwtAccessTokenConverter converter = new CachingJwtAccessTokenConverter(100);
+
+    @Before
+    public void setUp() throws Exception {
+        final KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+        keyPairGenerator.initialize(1024);
+        converter.setKeyPair(keyPairGenerator.generateKeyPair());
+        converter.afterPropertiesSet();
+    }
+
+    @Test
+    public void shouldVerifyTheSameTokenOnce() {
+        final String token = converter.enhance(JwtTokenFixtures.accessToken(), JwtTokenFixtures.authentication()).getValue();
+
+        converter.decode(token);
+        converter.decode(token);
+        converter.decode(token);
+
+        assertThat(converter.getMissCount(), equalTo(1L));
+        assertThat(converter.getHitCount(), equalTo(2L));
+    }
+
+    @Test(expected = InvalidTokenException.class)
+    public void shouldStillRejectTamperedTokens() {
+        final String token = converter.enhance(JwtTokenFixtures.accessToken(), JwtTokenFixtures.authentication()).getValue();
+        converter.decode(token);
+
+        converter.decode(token.substring(0, token.length() - 2) + "xx");
+    }
+}
@@ -0,0 +1,88 @@
+package pl.touk.widerest.security.oauth2.jwt;
+
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.security.jwt.JwtHelper;
+import org.springframework.security.oauth2.provider.token.DefaultAccessTokenConverter;
+import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+import org.springframework.security.oauth2.provider.token.store.JwtTokenStore;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+
+@RunWith(JUnitParamsRunner.class)
+public class JwtConfigTest {
+
+    @Test
+    @Parameters({ "RS256, RSA, 2048", "ES256, EC, 256", "HS256, , 0" })
+    public void shouldRoundTripTokensThroughConfiguredConverterTest(final JwtSigningAlgorithm algorithm, final String keyAlgorithm, final int keySize) throws Exception {
+        final KeyPair keyPair = keySize > 0 ? generateKeyPair(keyAlgorithm, keySize) : null;
+        final JwtConfig config = new JwtConfig() {
+            @Override
+            protected KeyPair loadKeyPair() {
+                return keyPair;
+            }
+        };
+        ReflectionTestUtils.setField(config, "algorithm", algorithm);
+        ReflectionTestUtils.setField(config, "keyStore", "classpath:jwt.jks");
+        ReflectionTestUtils.setField(config, "secret", "a-secret-shared-by-all-services");
+        ReflectionTestUtils.setField(config, "tokenCacheSize", 100L);
+
+        final JwtAccessTokenConverter converter = config.jwtTokenEnhancer(new DefaultAccessTokenConverter(), null);
+        converter.afterPropertiesSet();
+
+        final String token = converter.enhance(JwtTokenFixtures.accessToken(), JwtTokenFixtures.authentication()).getValue();
+
+        assertThat(JwtHelper.decode(token).toString(), containsString("\"alg\":\"" + algorithm.name() + "\""));
+        assertThat(new JwtTokenStore(converter).readAuthentication(token).getName(), equalTo("benchmark"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldFailOnMissingKeyStoreTest() {
+        final JwtConfig config = new JwtConfig();
+        ReflectionTestUtils.setField(config, "algorithm", JwtSigningAlgorithm.RS256);
+        ReflectionTestUtils.setField(config, "keyStore", "classpath:no-such-key-store.jks");
+        ReflectionTestUtils.setField(config, "keyStorePassword", "testpass");
+        ReflectionTestUtils.setField(config, "keyAlias", "jwtkey");
+        ReflectionTestUtils.setField(config, "keyPassword", "testpass");
+
+        config.jwtTokenEnhancer(new DefaultAccessTokenConverter(), null);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldFailOnKeyOfAnotherCurveTest() throws Exception {
+        final KeyPair keyPair = generateKeyPair("EC", 384);
+        final JwtConfig config = new JwtConfig() {
+            @Override
+            protected KeyPair loadKeyPair() {
+                return keyPair;
+            }
+        };
+        ReflectionTestUtils.setField(config, "algorithm", JwtSigningAlgorithm.ES256);
+        ReflectionTestUtils.setField(config, "keyStore", "classpath:jwt.jks");
+
+        config.jwtTokenEnhancer(new DefaultAccessTokenConverter(), null);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldFailOnMissingSecretTest() {
+        final JwtConfig config = new JwtConfig();
+        ReflectionTestUtils.setField(config, "algorithm", JwtSigningAlgorithm.HS256);
+        ReflectionTestUtils.setField(config, "secret", "");
+
+        config.jwtTokenEnhancer(new DefaultAccessTokenConverter(), null);
+    }
+
+    private static KeyPair generateKeyPair(final String algorithm, final int keySize) throws Exception {
+        final KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance(algorithm);
+        keyPairGenerator.initialize(keySize);
+        return keyPairGenerator.generateKeyPair();
+    }
+}
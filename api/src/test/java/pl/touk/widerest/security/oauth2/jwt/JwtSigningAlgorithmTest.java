@@ -0,0 +1,73 @@
+package pl.touk.widerest.security.oauth2.jwt;
+
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.security.jwt.JwtHelper;
+import org.springframework.security.jwt.crypto.sign.InvalidSignatureException;
+import org.springframework.security.oauth2.provider.token.store.JwtTokenStore;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.startsWith;
+
+@RunWith(JUnitParamsRunner.class)
+public class JwtSigningAlgorithmTest {
+
+    @Test
+    @Parameters({ "RS256, RSA, 2048", "ES256, EC, 256", "HS256, , 0" })
+    public void shouldVerifyIssuedTokensTest(final JwtSigningAlgorithm algorithm, final String keyAlgorithm, final int keySize) throws Exception {
+        final SigningJwtAccessTokenConverter converter = new SigningJwtAccessTokenConverter();
+        algorithm.configure(converter, keySize > 0 ? generateKeyPair(keyAlgorithm, keySize) : null, "a-secret-shared-by-all-services");
+        converter.afterPropertiesSet();
+
+        final String token = converter.enhance(JwtTokenFixtures.accessToken(), JwtTokenFixtures.authentication()).getValue();
+
+        assertThat(JwtHelper.decode(token).toString(), containsString("\"alg\":\"" + algorithm.name() + "\""));
+        assertThat(new JwtTokenStore(converter).readAuthentication(token).getName(), equalTo("benchmark"));
+    }
+
+    @Test
+    public void shouldServePublicKeyForEllipticCurvesTest() throws Exception {
+        final SigningJwtAccessTokenConverter converter = new SigningJwtAccessTokenConverter();
+        JwtSigningAlgorithm.ES256.configure(converter, generateKeyPair("EC", 256), null);
+
+        assertThat(converter.getKey().get("value"), startsWith("-----BEGIN PUBLIC KEY-----"));
+    }
+
+    @Test
+    public void shouldNotServeSharedSecretTest() throws Exception {
+        final SigningJwtAccessTokenConverter converter = new SigningJwtAccessTokenConverter();
+        JwtSigningAlgorithm.HS256.configure(converter, null, "a-secret-shared-by-all-services");
+
+        assertThat(converter.getKey().get("value"), nullValue());
+    }
+
+    @Test(expected = InvalidSignatureException.class)
+    public void shouldRejectSignatureOfAnotherKeyTest() throws Exception {
+        final KeyPair keyPair = generateKeyPair("EC", 256);
+        final byte[] signature = new EcdsaSigner(keyPair.getPrivate(), keyPair.getPublic()).sign("content".getBytes());
+
+        final KeyPair otherKeyPair = generateKeyPair("EC", 256);
+        new EcdsaSigner(otherKeyPair.getPrivate(), otherKeyPair.getPublic()).verify("content".getBytes(), signature);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectKeyOfAnotherCurveTest() throws Exception {
+        final KeyPair keyPair = generateKeyPair("EC", 384);
+
+        new EcdsaSigner(keyPair.getPrivate(), keyPair.getPublic());
+    }
+
+    private static KeyPair generateKeyPair(final String algorithm, final int keySize) throws Exception {
+        final KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance(algorithm);
+        keyPairGenerator.initialize(keySize);
+        return keyPairGenerator.generateKeyPair();
+    }
+}
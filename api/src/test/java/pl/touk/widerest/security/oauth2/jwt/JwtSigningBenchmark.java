@@ -0,0 +1,89 @@
+package pl.touk.widerest.security.oauth2.jwt;
+
+import org.apache.commons.lang3.RandomStringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.store.JwtTokenStore;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token issue (signing) and verification throughput for every {@link JwtSigningAlgorithm}.
+ * Run with {@code main} from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class JwtSigningBenchmark {
+
+    @Param({ "RS256", "ES256", "HS256" })
+    private JwtSigningAlgorithm algorithm;
+
+    private SigningJwtAccessTokenConverter converter;
+
+    private JwtTokenStore tokenStore;
+
+    private OAuth2Authentication authentication;
+
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        converter = new SigningJwtAccessTokenConverter();
+        algorithm.configure(converter, generateKeyPair(algorithm), RandomStringUtils.randomAlphanumeric(32));
+        converter.afterPropertiesSet();
+
+        tokenStore = new JwtTokenStore(converter);
+        authentication = JwtTokenFixtures.authentication();
+        token = issue().getValue();
+    }
+
+    @Benchmark
+    public OAuth2AccessToken issue() {
+        return converter.enhance(JwtTokenFixtures.accessToken(), authentication);
+    }
+
+    @Benchmark
+    public OAuth2Authentication verify() {
+        return tokenStore.readAuthentication(token);
+    }
+
+    private static KeyPair generateKeyPair(final JwtSigningAlgorithm algorithm) throws Exception {
+        switch (algorithm) {
+            case RS256:
+                final KeyPairGenerator rsa = KeyPairGenerator.getInstance("RSA");
+                rsa.initialize(2048);
+                return rsa.generateKeyPair();
+            case ES256:
+                final KeyPairGenerator ec = KeyPairGenerator.getInstance("EC");
+                ec.initialize(256);
+                return ec.generateKeyPair();
+            default:
+                return null;
+        }
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JwtSigningBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,37 @@
+package pl.touk.widerest.security.oauth2.jwt;
+
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An access token and authentication of a "benchmark" user to issue JWTs for - shared by the tests and benchmarks
+ * of this package.
+ */
+final class JwtTokenFixtures {
+
+    private JwtTokenFixtures() {
+    }
+
+    static DefaultOAuth2AccessToken accessToken() {
+        final DefaultOAuth2AccessToken accessToken = new DefaultOAuth2AccessToken("benchmark");
+        accessToken.setExpiration(new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1)));
+        accessToken.setScope(Collections.singleton("customer"));
+        return accessToken;
+    }
+
+    static OAuth2Authentication authentication() {
+        final List<GrantedAuthority> authorities = AuthorityUtils.createAuthorityList("ROLE_USER");
+        final OAuth2Request request = new OAuth2Request(Collections.emptyMap(), "default", authorities, true,
+                Collections.singleton("customer"), null, null, null, null);
+        return new OAuth2Authentication(request, new UsernamePasswordAuthenticationToken("benchmark", "N/A", authorities));
+    }
+}
@@ -0,0 +1,76 @@
+package pl.touk.widerest.security.oauth2.jwt;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+import org.springframework.security.oauth2.provider.token.store.JwtTokenStore;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares resolving the same JWT with a plain {@link JwtAccessTokenConverter} (signature verification and parsing
+ * on every call) and with {@link CachingJwtAccessTokenConverter}.
+ * Run with {@code main} from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class JwtTokenStoreBenchmark {
+
+    private JwtTokenStore coldTokenStore;
+
+    private JwtTokenStore cachingTokenStore;
+
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        final KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+        keyPairGenerator.initialize(2048);
+        final KeyPair keyPair = keyPairGenerator.generateKeyPair();
+
+        final JwtAccessTokenConverter coldConverter = new JwtAccessTokenConverter();
+        coldConverter.setKeyPair(keyPair);
+        coldConverter.afterPropertiesSet();
+        coldTokenStore = new JwtTokenStore(coldConverter);
+
+        final JwtAccessTokenConverter cachingConverter = new CachingJwtAccessTokenConverter(10000);
+        cachingConverter.setKeyPair(keyPair);
+        cachingConverter.afterPropertiesSet();
+        cachingTokenStore = new JwtTokenStore(cachingConverter);
+
+        token = coldConverter.enhance(JwtTokenFixtures.accessToken(), JwtTokenFixtures.authentication()).getValue();
+    }
+
+    @Benchmark
+    public OAuth2Authentication coldResolution() {
+        return coldTokenStore.readAuthentication(token);
+    }
+
+    @Benchmark
+    public OAuth2Authentication cachedResolution() {
+        return cachingTokenStore.readAuthentication(token);
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JwtTokenStoreBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,123 @@
+package pl.touk.widerest.security.oauth2.jwt;
+
+import org.broadleafcommerce.openadmin.server.security.domain.AdminUser;
+import org.broadleafcommerce.openadmin.server.security.service.AdminUserDetails;
+import org.broadleafcommerce.profile.core.domain.Customer;
+import org.broadleafcommerce.profile.core.service.CustomerUserDetails;
+import org.hibernate.ejb.HibernateEntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.service.spi.ServiceRegistryImplementor;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class PrincipalCacheTest {
+
+    private final PrincipalCache principalCache = new PrincipalCache();
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Before
+    public void setUp() {
+        final HibernateEntityManagerFactory entityManagerFactory = mock(HibernateEntityManagerFactory.class);
+        final SessionFactoryImplementor sessionFactory = mock(SessionFactoryImplementor.class);
+        final ServiceRegistryImplementor serviceRegistry = mock(ServiceRegistryImplementor.class);
+        when(entityManagerFactory.getSessionFactory()).thenReturn(sessionFactory);
+        when(sessionFactory.getServiceRegistry()).thenReturn(serviceRegistry);
+        when(serviceRegistry.getService(EventListenerRegistry.class)).thenReturn(mock(EventListenerRegistry.class));
+
+        principalCache.entityManagerFactory = entityManagerFactory;
+        principalCache.maximumSize = 100;
+        principalCache.timeToLiveSeconds = 60;
+        principalCache.init();
+    }
+
+    @Test
+    public void shouldCacheLoadedPrincipalTest() {
+        principalCache.get("alonzo", () -> load(42L));
+        principalCache.get("alonzo", () -> load(42L));
+
+        assertThat(loads.get(), equalTo(1));
+    }
+
+    @Test
+    public void shouldNotCachePrincipalChangedWhileLoadingTest() {
+        principalCache.get("alonzo", () -> {
+            final UserDetails loaded = load(42L);
+            principalCache.onChange(customer(42L));
+            return loaded;
+        });
+        principalCache.get("alonzo", () -> load(42L));
+
+        assertThat(loads.get(), equalTo(2));
+    }
+
+    @Test
+    public void shouldCachePrincipalWhenOtherCustomerChangedWhileLoadingTest() {
+        principalCache.get("alonzo", () -> {
+            final UserDetails loaded = load(42L);
+            principalCache.onChange(customer(7L));
+            return loaded;
+        });
+        principalCache.get("alonzo", () -> load(42L));
+
+        assertThat(loads.get(), equalTo(1));
+    }
+
+    @Test
+    public void shouldInvalidateAdminRolesOnlyAfterCommitTest() {
+        final PostCollectionUpdateEvent event = mock(PostCollectionUpdateEvent.class);
+        when(event.getAffectedOwnerOrNull()).thenReturn(adminUser(1L));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            principalCache.onPostUpdateCollection(event);
+            principalCache.get("admin", () -> loadAdmin(1L));
+            principalCache.get("admin", () -> loadAdmin(1L));
+            assertThat(loads.get(), equalTo(1));
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        principalCache.get("admin", () -> loadAdmin(1L));
+
+        assertThat(loads.get(), equalTo(2));
+    }
+
+    private UserDetails loadAdmin(final Long adminUserId) {
+        loads.incrementAndGet();
+        return new AdminUserDetails(adminUserId, "admin", "secret", true, true, true, true,
+                AuthorityUtils.createAuthorityList("PERMISSION_ALL_PRODUCT"));
+    }
+
+    private static AdminUser adminUser(final Long id) {
+        final AdminUser adminUser = mock(AdminUser.class);
+        when(adminUser.getId()).thenReturn(id);
+        return adminUser;
+    }
+
+    private UserDetails load(final Long customerId) {
+        loads.incrementAndGet();
+        return new CustomerUserDetails(customerId, "alonzo", "secret", true, true, true, true,
+                AuthorityUtils.createAuthorityList("ROLE_USER"));
+    }
+
+    private static Customer customer(final Long id) {
+        final Customer customer = mock(Customer.class);
+        when(customer.getId()).thenReturn(id);
+        return customer;
+    }
+}
@@ -0,0 +1,124 @@
+package pl.touk.widerest.security.oauth2.jwt;
+
+import org.broadleafcommerce.openadmin.server.security.service.AdminUserDetails;
+import org.broadleafcommerce.profile.core.domain.Customer;
+import org.broadleafcommerce.profile.core.domain.CustomerImpl;
+import org.broadleafcommerce.profile.core.service.CustomerService;
+import org.broadleafcommerce.profile.core.service.CustomerUserDetails;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.oauth2.provider.token.AccessTokenConverter;
+import org.springframework.test.util.ReflectionTestUtils;
+import pl.touk.widerest.security.authentication.AnonymousUserDetailsService;
+import pl.touk.widerest.security.authentication.SiteAuthenticationToken;
+import pl.touk.widerest.security.oauth2.Scope;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.hasKey;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class WiderestUserAuthenticationConverterTest {
+
+    private final WiderestUserAuthenticationConverter converter = new WiderestUserAuthenticationConverter();
+
+    @Before
+    public void setUp() {
+        converter.selfContainedScopes = new String[] { Scope.CUSTOMER.toString(), Scope.CUSTOMER_REGISTERED.toString() };
+    }
+
+    @Test
+    public void shouldRebuildCustomerFromSelfContainedClaims() {
+        final CustomerUserDetails customerUserDetails = new CustomerUserDetails(42L, "alonzo", "secret", true, true, true, true,
+                AuthorityUtils.createAuthorityList("ROLE_USER"));
+
+        final Map<String, Object> claims = new HashMap<>(converter.convertUserAuthentication(
+                new UsernamePasswordAuthenticationToken(customerUserDetails, null, customerUserDetails.getAuthorities())));
+        claims.put(AccessTokenConverter.SCOPE, Collections.singletonList(Scope.CUSTOMER_REGISTERED.toString()));
+
+        final Authentication authentication = converter.extractAuthentication(claims);
+
+        assertThat(authentication, instanceOf(SiteAuthenticationToken.class));
+        assertThat(((CustomerUserDetails) authentication.getPrincipal()).getId(), equalTo(42L));
+        assertThat(((CustomerUserDetails) authentication.getPrincipal()).getUsername(), equalTo("alonzo"));
+        assertThat(AuthorityUtils.authorityListToSet(authentication.getAuthorities()), equalTo(Collections.singleton("ROLE_USER")));
+    }
+
+    @Test
+    public void shouldNotEmbedClaimsForScopesVerifiedAgainstDatabase() {
+        final AdminUserDetails adminUserDetails = new AdminUserDetails(1L, "admin", "admin", true, true, true, true,
+                AuthorityUtils.createAuthorityList("PERMISSION_ALL_PRODUCT"));
+
+        final Map<String, Object> claims = new HashMap<>(converter.convertUserAuthentication(
+                new UsernamePasswordAuthenticationToken(adminUserDetails, null, adminUserDetails.getAuthorities())));
+        claims.put(AccessTokenConverter.SCOPE, Collections.singletonList(Scope.STAFF.toString()));
+
+        assertThat(claims, not(hasKey(WiderestUserAuthenticationConverter.UID)));
+        assertFalse(converter.isSelfContained(claims));
+    }
+
+    @Test
+    public void shouldRequireEveryScopeOfTokenToBeSelfContained() {
+        final Map<String, Object> claims = new HashMap<>();
+        claims.put(WiderestUserAuthenticationConverter.UID, 42L);
+
+        claims.put(AccessTokenConverter.SCOPE, Collections.singletonList(Scope.CUSTOMER.toString()));
+        assertTrue(converter.isSelfContained(claims));
+
+        claims.put(AccessTokenConverter.SCOPE, Arrays.asList(Scope.CUSTOMER.toString(), Scope.STAFF.toString()));
+        assertFalse(converter.isSelfContained(claims));
+    }
+
+    @Test
+    public void shouldIssueAnonymousSubjectByCustomerId() {
+        final UserDetails userDetails = new AnonymousUserDetailsService().createAnonymousUserDetails(43L);
+
+        final Map<String, ?> claims = converter.convertUserAuthentication(
+                new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities()));
+
+        assertThat(claims.get(WiderestUserAuthenticationConverter.SUB), equalTo("anonymous/43"));
+    }
+
+    @Test
+    public void shouldResolveAnonymousCustomerNotPersistedYet() {
+        givenCustomer(43L, null);
+
+        final CustomerUserDetails userDetails = (CustomerUserDetails) converter.loadAnonymousUser("43");
+
+        assertThat(userDetails.getId(), equalTo(43L));
+        assertThat(AuthorityUtils.authorityListToSet(userDetails.getAuthorities()), equalTo(Collections.singleton("ROLE_USER")));
+    }
+
+    @Test(expected = UsernameNotFoundException.class)
+    public void shouldNotResolveAnonymousSubjectOfRegisteredCustomer() {
+        final Customer customer = new CustomerImpl();
+        customer.setId(43L);
+        customer.setUsername("alonzo");
+        customer.setRegistered(true);
+        givenCustomer(43L, customer);
+
+        converter.loadAnonymousUser("43");
+    }
+
+    private void givenCustomer(final Long customerId, final Customer customer) {
+        final CustomerService customerService = mock(CustomerService.class);
+        when(customerService.readCustomerById(customerId)).thenReturn(customer);
+        converter.anonymousUserDetailsService = new AnonymousUserDetailsService();
+        ReflectionTestUtils.setField(converter.anonymousUserDetailsService, "customerService", customerService);
+    }
+}
@@ -6,16 +6,33 @@ import org.broadleafcommerce.core.inventory.service.type.InventoryType;
 import org.junit.After;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.hateoas.Resources;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.util.UriComponentsBuilder;
 import pl.touk.widerest.AbstractTest;
+import pl.touk.widerest.api.categories.CategoryController;
 import pl.touk.widerest.api.categories.CategoryDto;
+import pl.touk.widerest.api.categories.ProductReferenceResultDto;
+import pl.touk.widerest.api.common.CatalogUtils;
 import pl.touk.widerest.api.products.ProductDto;
+import pl.touk.widerest.base.ApiTestUrls;
 import pl.touk.widerest.base.ApiTestUtils;
 import pl.touk.widerest.base.DtoTestFactory;
 import pl.touk.widerest.security.oauth2.Scope;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static pl.touk.widerest.base.DtoTestFactory.categories;
@@ -374,4 +391,135 @@ public class CategoryControllerTest extends AbstractTest {
                 )
         );
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldPageSortAndFilterProductsInCategoryByPrice() throws Throwable {
+        givenAuthorizationFor(Scope.STAFF, adminRestTemplate -> {
+            final CategoryDto categoryDto = categories().testCategoryDto();
+            givenCatalog.category(categoryDto, categoryId -> {
+                final List<Long> productIds = new ArrayList<>();
+                for (final String price : Arrays.asList("10.00", "30.00", "20.00")) {
+                    final ProductDto productDto = products().testProductWithDefaultCategory(categoryDto.getName());
+                    productDto.setRetailPrice(new BigDecimal(price));
+                    whenProductCreated(productDto, createdProductResponseEntity ->
+                            productIds.add(ApiTestUtils.getIdFromEntity(createdProductResponseEntity))
+                    );
+                }
+
+                final ResponseEntity<Resources<ProductDto>> mostExpensive = readProductsFromCategory(categoryId, "sort=price,desc&limit=2");
+                assertThat(mostExpensive.getHeaders().getFirst(CategoryController.TOTAL_COUNT_HEADER)).isEqualTo("3");
+                assertThat(productIds(mostExpensive)).containsExactly(productIds.get(1), productIds.get(2));
+
+                final ResponseEntity<Resources<ProductDto>> cheapest = readProductsFromCategory(categoryId, "sort=price&offset=1&maxPrice=25");
+                assertThat(cheapest.getHeaders().getFirst(CategoryController.TOTAL_COUNT_HEADER)).isEqualTo("2");
+                assertThat(productIds(cheapest)).containsExactly(productIds.get(2));
+
+                assertThatExceptionOfType(HttpClientErrorException.class)
+                        .isThrownBy(() -> readProductsFromCategory(categoryId, "sort=weight"))
+                        .is(ApiTestHttpConditions.http4xxStatusCode);
+            });
+        });
+    }
+
+    @Test
+    public void shouldInsertManyProductsIntoCategoryAtOnce() throws Throwable {
+        givenAuthorizationFor(Scope.STAFF, adminRestTemplate ->
+                givenCatalog.category(categoryId -> {
+                    final List<String> hrefs = new ArrayList<>();
+                    for (int i = 0; i < 2; i++) {
+                        whenProductCreated(products().getTestProductWithoutDefaultCategory(), createdProductResponseEntity ->
+                                hrefs.add(createdProductResponseEntity.getHeaders().getLocation().toASCIIString())
+                        );
+                    }
+                    hrefs.add(hrefs.get(0));
+                    hrefs.add(UriComponentsBuilder.fromUriString(ApiTestUrls.PRODUCT_BY_ID_URL).buildAndExpand(serverPort, Long.MAX_VALUE).toUriString());
+
+                    final List<ProductReferenceResultDto> results = backofficeRestTemplate.exchange(
+                            ApiTestUrls.PRODUCTS_IN_CATEGORY_URL,
+                            HttpMethod.POST,
+                            new HttpEntity<>(hrefs),
+                            new ParameterizedTypeReference<List<ProductReferenceResultDto>>() {
+                            },
+                            serverPort,
+                            categoryId
+                    ).getBody();
+
+                    assertThat(results.stream().map(ProductReferenceResultDto::getStatus).collect(Collectors.toList()))
+                            .containsExactly(201, 201, 409, 404);
+                    thenCategory.containsProductsCount(categoryId, 2);
+
+                    catalogOperationsRemote.removeProductToCategoryReference(categoryId, ApiTestUtils.getIdFromLocationUrl(hrefs.get(0)));
+                    thenCategory.containsProductsCount(categoryId, 1);
+                })
+        );
+    }
+
+    @Test
+    public void categoryTreeShouldFollowSubcategoryReferences() throws Throwable {
+        givenAuthorizationFor(Scope.STAFF, adminRestTemplate ->
+                givenCatalog.category(categoryId ->
+                        givenCatalog.category(subcategoryId -> {
+                            assertThat(readRootCategoryIds()).contains(categoryId, subcategoryId);
+
+                            givenCatalog.categoryReference(categoryId, subcategoryId);
+                            assertThat(readRootCategoryIds()).contains(categoryId).doesNotContain(subcategoryId);
+                            assertThat(readRootCategory(categoryId).getLinks().stream()
+                                    .filter(link -> link.getRel().equals("subcategories"))
+                                    .map(link -> CatalogUtils.getIdFromUrl(link.getHref()))
+                                    .collect(Collectors.toList()))
+                                    .containsExactly(subcategoryId);
+
+                            whenCategory.referenceDeleted(categoryId, subcategoryId, deleteReferenceResponseEntity ->
+                                    assertThat(readRootCategoryIds()).contains(categoryId, subcategoryId)
+                            );
+
+                            /* bypassing CategoryController as well */
+                            catalogService.removeCategory(catalogService.findCategoryById(categoryId));
+                            assertThat(readRootCategoryIds()).doesNotContain(categoryId).contains(subcategoryId);
+                        })
+                )
+        );
+    }
+
+    private List<Long> readRootCategoryIds() {
+        return readRootCategories().stream()
+                .map(category -> CatalogUtils.getIdFromUrl(category.getId().getHref()))
+                .collect(Collectors.toList());
+    }
+
+    private CategoryDto readRootCategory(final long categoryId) {
+        return readRootCategories().stream()
+                .filter(category -> CatalogUtils.getIdFromUrl(category.getId().getHref()) == categoryId)
+                .findAny()
+                .get();
+    }
+
+    private Collection<CategoryDto> readRootCategories() {
+        return backofficeRestTemplate.exchange(
+                ApiTestUrls.CATEGORIES_URL,
+                HttpMethod.GET,
+                null,
+                new ParameterizedTypeReference<Resources<CategoryDto>>() {
+                },
+                serverPort
+        ).getBody().getContent();
+    }
+
+    private ResponseEntity<Resources<ProductDto>> readProductsFromCategory(final long categoryId, final String query) {
+        return backofficeRestTemplate.exchange(
+                ApiTestUrls.PRODUCTS_IN_CATEGORY_URL + "?" + query,
+                HttpMethod.GET,
+                null,
+                new ParameterizedTypeReference<Resources<ProductDto>>() {
+                },
+                serverPort,
+                categoryId
+        );
+    }
+
+    private static List<Long> productIds(final ResponseEntity<Resources<ProductDto>> products) {
+        return products.getBody().getContent().stream()
+                .map(product -> CatalogUtils.getIdFromUrl(product.getId().getHref()))
+                .collect(Collectors.toList());
+    }
+}
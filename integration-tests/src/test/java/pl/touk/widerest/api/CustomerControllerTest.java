@@ -2,6 +2,7 @@ package pl.touk.widerest.api;
 
 import org.apache.commons.lang3.RandomStringUtils;
 import org.apache.commons.lang3.tuple.Pair;
+import org.broadleafcommerce.core.order.service.OrderService;
 import org.broadleafcommerce.profile.core.domain.Customer;
 import org.broadleafcommerce.profile.core.service.CustomerService;
 import org.junit.Test;
@@ -11,20 +12,36 @@ import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 import pl.touk.widerest.AbstractTest;
+import pl.touk.widerest.api.customers.AnonymousCustomerPurge;
 import pl.touk.widerest.api.customers.CustomerServiceProxy;
 import pl.touk.widerest.base.ApiTestUrls;
 import pl.touk.widerest.base.ApiTestUtils;
+import pl.touk.widerest.security.authentication.AnonymousUserDetailsService;
+import pl.touk.widerest.security.authentication.CustomerAuthoritiesCache;
+import pl.touk.widerest.security.oauth2.Scope;
 
 import javax.annotation.Resource;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
+import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
@@ -38,6 +55,21 @@ public class CustomerControllerTest extends AbstractTest {
     @Resource(name = "wdCustomerService")
     private CustomerServiceProxy customerServiceProxy;
 
+    @Resource(name = "blOrderService")
+    private OrderService orderService;
+
+    @Resource
+    private AnonymousCustomerPurge anonymousCustomerPurge;
+
+    @Resource
+    private AnonymousUserDetailsService anonymousUserDetailsService;
+
+    @Resource
+    private CustomerAuthoritiesCache customerAuthoritiesCache;
+
+    @Resource(name = "blTransactionManager")
+    private PlatformTransactionManager transactionManager;
+
 
     @Test
     public void userShouldBeAbleToRegister() throws URISyntaxException {
@@ -54,6 +86,72 @@ public class CustomerControllerTest extends AbstractTest {
 
     }
 
+    @Test(expected = HttpClientErrorException.class)
+    public void numericUsernameShouldBeReservedForAnonymousCustomers() throws URISyntaxException {
+        givenAnonymousUser();
+
+        customerBehaviour.whenUserTriesToRegister(RandomStringUtils.randomNumeric(8), "uncurry",
+                RandomStringUtils.random(32, "haskellCurry") + "@curry.org");
+    }
+
+    @Test
+    public void registeredCustomerAuthoritiesShouldBeResolvedOnce() throws URISyntaxException {
+        givenAnonymousUser();
+        final String username = RandomStringUtils.random(32, "haskellCurry");
+        customerBehaviour.whenUserTriesToRegister(username, "uncurry", RandomStringUtils.random(32, "haskellCurry") + "@curry.org");
+        final Customer customer = customerService.readCustomerByUsername(username);
+
+        final long missCount = customerAuthoritiesCache.getMissCount();
+        final UserDetails first = anonymousUserDetailsService.createCustomerUserDetails(customer);
+        final UserDetails second = anonymousUserDetailsService.createCustomerUserDetails(customer);
+
+        assertThat(customerAuthoritiesCache.getMissCount() - missCount, is(1L));
+        assertThat(AuthorityUtils.authorityListToSet(first.getAuthorities()), hasItem("ROLE_USER"));
+        final GrantedAuthority authority = first.getAuthorities().iterator().next();
+        assertThat(second.getAuthorities().iterator().next(), sameInstance(authority));
+    }
+
+    @Test
+    public void staleAnonymousCustomersShouldBePurgedWithTheirCarts() throws Throwable {
+        givenAuthorizationFor(Scope.CUSTOMER, restTemplate -> {
+            final long orderId = ApiTestUtils.getIdFromLocationUrl(createNewOrder(restTemplate).toString());
+            final Long customerId = orderService.findOrderById(orderId).getCustomer().getId();
+
+            anonymousCustomerPurge.purge(new Date(System.currentTimeMillis() - 60000));
+            assertThat(customerService.readCustomerById(customerId), notNullValue());
+
+            anonymousCustomerPurge.purge(new Date(System.currentTimeMillis() + 60000));
+            assertThat(customerService.readCustomerById(customerId), nullValue());
+            assertThat(orderService.findOrderById(orderId), nullValue());
+        });
+    }
+
+    @Test
+    public void anonymousCustomersWithRecentlyUpdatedCartsShouldNotBePurged() throws Throwable {
+        givenAuthorizationFor(Scope.CUSTOMER, restTemplate -> {
+            final long orderId = ApiTestUtils.getIdFromLocationUrl(createNewOrder(restTemplate).toString());
+            final Long customerId = orderService.findOrderById(orderId).getCustomer().getId();
+            final Date twoDaysAgo = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(2));
+            final Date dayAgo = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1));
+
+            backdate("CustomerImpl", customerId, twoDaysAgo);
+            anonymousCustomerPurge.purge(dayAgo);
+            assertThat(customerService.readCustomerById(customerId), notNullValue());
+
+            backdate("OrderImpl", orderId, twoDaysAgo);
+            anonymousCustomerPurge.purge(dayAgo);
+            assertThat(customerService.readCustomerById(customerId), nullValue());
+        });
+    }
+
+    private void backdate(final String entityName, final long id, final Date date) {
+        new TransactionTemplate(transactionManager).execute(status -> em.createQuery(
+                "update " + entityName + " e set e.auditable.dateCreated = :date, e.auditable.dateUpdated = :date where e.id = :id")
+                .setParameter("date", date)
+                .setParameter("id", id)
+                .executeUpdate());
+    }
+
 
     private Pair<RestTemplate, String> userCredentials;
     private HttpHeaders httpRequestHeader = new HttpHeaders();
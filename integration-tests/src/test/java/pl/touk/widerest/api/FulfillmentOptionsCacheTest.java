@@ -0,0 +1,147 @@
+package pl.touk.widerest.api;
+
+import org.broadleafcommerce.common.currency.domain.BroadleafCurrency;
+import org.broadleafcommerce.common.currency.domain.BroadleafCurrencyImpl;
+import org.broadleafcommerce.common.money.Money;
+import org.broadleafcommerce.common.vendor.service.exception.FulfillmentPriceException;
+import org.broadleafcommerce.common.web.BroadleafRequestContext;
+import org.broadleafcommerce.core.catalog.domain.Category;
+import org.broadleafcommerce.core.catalog.domain.Sku;
+import org.broadleafcommerce.core.order.domain.FulfillmentOption;
+import org.broadleafcommerce.core.order.domain.FulfillmentOptionImpl;
+import org.broadleafcommerce.core.order.fulfillment.domain.FixedPriceFulfillmentOption;
+import org.broadleafcommerce.core.order.fulfillment.domain.FixedPriceFulfillmentOptionImpl;
+import org.broadleafcommerce.core.order.service.type.FulfillmentType;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.touk.widerest.AbstractTest;
+import pl.touk.widerest.api.orders.fulfillments.FulfillmentOptionsCache;
+import pl.touk.widerest.base.ApiTestUtils;
+import pl.touk.widerest.base.DtoTestFactory;
+
+import javax.annotation.Resource;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+public class FulfillmentOptionsCacheTest extends AbstractTest {
+
+    @Resource
+    private FulfillmentOptionsCache fulfillmentOptionsCache;
+
+    @Resource(name = "blTransactionManager")
+    private PlatformTransactionManager transactionManager;
+
+    private final AtomicInteger estimations = new AtomicInteger();
+
+    private long productId;
+
+    @Before
+    public void givenProduct() {
+        productId = ApiTestUtils.getIdFromLocationUrl(catalogOperationsRemote
+                .addProduct(DtoTestFactory.products().getTestProductWithoutDefaultCategory()).getHeaders().getLocation().toString());
+        fulfillmentOptionsCache.invalidateAll();
+    }
+
+    @Test
+    public void sameProductInTwoCurrenciesShouldBeCachedTwiceTest() throws FulfillmentPriceException {
+        final long hits = fulfillmentOptionsCache.getHitCount();
+        final long misses = fulfillmentOptionsCache.getMissCount();
+
+        estimateIn("USD");
+        estimateIn("EUR");
+        estimateIn("USD");
+        estimateIn("EUR");
+
+        assertThat(estimations.get(), equalTo(2));
+        assertThat(fulfillmentOptionsCache.getSize(), equalTo(2L));
+        assertThat(fulfillmentOptionsCache.getMissCount() - misses, equalTo(2L));
+        assertThat(fulfillmentOptionsCache.getHitCount() - hits, equalTo(2L));
+    }
+
+    @Test
+    public void fulfillmentOptionChangeShouldDropEntriesTest() throws FulfillmentPriceException {
+        final Long optionId = givenFulfillmentOption();
+        estimateIn("USD");
+
+        inTransaction(() -> em.find(FulfillmentOptionImpl.class, optionId).setName("Renamed option"));
+
+        assertThat(fulfillmentOptionsCache.getSize(), equalTo(0L));
+        estimateIn("USD");
+        assertThat(estimations.get(), equalTo(2));
+    }
+
+    @Test
+    public void skuExclusionShouldDropProductEntriesAfterCommitTest() throws FulfillmentPriceException {
+        final Long optionId = givenFulfillmentOption();
+        estimateIn("USD");
+
+        inTransaction(() -> {
+            final Sku sku = catalogService.findProductById(productId).getDefaultSku();
+            sku.getExcludedFulfillmentOptions().add(em.find(FulfillmentOptionImpl.class, optionId));
+            em.flush();
+
+            // collection events fire on flush, the entry has to stay until the commit
+            assertThat(fulfillmentOptionsCache.getSize(), equalTo(1L));
+        });
+
+        assertThat(fulfillmentOptionsCache.getSize(), equalTo(0L));
+    }
+
+    @Test
+    public void categoryFulfillmentTypeChangeShouldDropProductEntriesTest() throws FulfillmentPriceException {
+        final long categoryId = ApiTestUtils.getIdFromLocationUrl(catalogOperationsRemote
+                .addCategory(DtoTestFactory.categories().testCategoryDto()).getHeaders().getLocation().toString());
+        estimateIn("USD");
+
+        inTransaction(() -> {
+            final Category category = catalogService.findCategoryById(categoryId);
+            category.setFulfillmentType(FulfillmentType.PHYSICAL_PICKUP);
+            catalogService.saveCategory(category);
+        });
+
+        assertThat(fulfillmentOptionsCache.getSize(), equalTo(0L));
+    }
+
+    private void estimateIn(final String currencyCode) throws FulfillmentPriceException {
+        final BroadleafCurrency currency = new BroadleafCurrencyImpl();
+        currency.setCurrencyCode(currencyCode);
+        final BroadleafRequestContext context = new BroadleafRequestContext();
+        context.setBroadleafCurrency(currency);
+
+        BroadleafRequestContext.setBroadleafRequestContext(context);
+        try {
+            fulfillmentOptionsCache.getForProduct(productId, () -> {
+                estimations.incrementAndGet();
+                return Collections.<FulfillmentOption, Money>emptyMap();
+            });
+        } finally {
+            BroadleafRequestContext.setBroadleafRequestContext(null);
+        }
+    }
+
+    private Long givenFulfillmentOption() {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            final FixedPriceFulfillmentOption option = new FixedPriceFulfillmentOptionImpl();
+            option.setName("Test option");
+            option.setFulfillmentType(FulfillmentType.PHYSICAL_SHIP);
+            option.setPrice(new Money("5.00"));
+            em.persist(option);
+            return option.getId();
+        });
+    }
+
+    private void inTransaction(final Runnable change) {
+        new TransactionTemplate(transactionManager).execute(status -> {
+            change.run();
+            return null;
+        });
+    }
+}
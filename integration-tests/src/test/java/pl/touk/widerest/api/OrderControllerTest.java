@@ -4,7 +4,9 @@ import org.apache.commons.lang3.tuple.Pair;
 import org.broadleafcommerce.core.order.service.type.OrderStatus;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.hateoas.Link;
+import org.springframework.hateoas.Resources;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -12,6 +14,7 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestTemplate;
 import pl.touk.widerest.AbstractTest;
 import pl.touk.widerest.api.orders.DiscreteOrderItemDto;
 import pl.touk.widerest.api.orders.OrderDto;
@@ -210,6 +213,45 @@ public class OrderControllerTest extends AbstractTest {
         });
     }
 
+    @Test
+    public void shouldPageAndFilterOrdersByStatusTest() throws Throwable {
+
+        // Given an anonymous user with 3 carts
+        givenAuthorizationFor(Scope.CUSTOMER, restTemplate -> {
+            createNewOrder(restTemplate);
+            createNewOrder(restTemplate);
+            createNewOrder(restTemplate);
+
+            // Then pages partition the user's orders
+            final Collection<OrderDto> firstPage = getOrdersPage(restTemplate, null, 2, 0);
+            final Collection<OrderDto> secondPage = getOrdersPage(restTemplate, null, 2, 2);
+            assertThat(firstPage, hasSize(2));
+            assertThat(secondPage, hasSize(1));
+            final Set<String> firstPageHrefs = firstPage.stream().map(x -> x.getLink("self").getHref()).collect(Collectors.toSet());
+            assertTrue(secondPage.stream().noneMatch(x -> firstPageHrefs.contains(x.getLink("self").getHref())));
+
+            // Then the status filter is applied before paging and counting
+            final String inProcess = OrderStatus.IN_PROCESS.getType();
+            assertThat(getOrdersPage(restTemplate, inProcess, 0, 0), hasSize(3));
+            assertThat(getOrdersPage(restTemplate, OrderStatus.SUBMITTED.getType(), 0, 0), hasSize(0));
+            assertThat(restTemplate.getForObject(ApiTestUrls.ORDERS_COUNT + "?status={status}", Long.class, serverPort, inProcess), equalTo(3L));
+            assertThat(getRemoteTotalOrdersCountValue(restTemplate), equalTo(3L));
+        });
+
+        // Then admin sees a bounded page and the total count
+        givenAuthorizationFor(Scope.STAFF, adminRestTemplate -> {
+            final long ordersCount = getRemoteTotalOrdersCountValue(adminRestTemplate);
+            assertThat(getOrdersPage(adminRestTemplate, null, 1, 0), hasSize(1));
+            assertThat(getAllOrders(adminRestTemplate), hasSize((int) ordersCount));
+        });
+    }
+
+    private Collection<OrderDto> getOrdersPage(final RestTemplate restTemplate, final String status, final int limit, final int offset) {
+        final String url = ApiTestUrls.ORDERS_URL + "?limit={limit}&offset={offset}" + (status != null ? "&status={status}" : "");
+        return restTemplate.exchange(url, HttpMethod.GET, null, new ParameterizedTypeReference<Resources<OrderDto>>() {
+        }, serverPort, limit, offset, status).getBody().getContent();
+    }
+
     @Test
     public void shouldNotModifyOrderItemQuantity() throws Throwable {
         givenAuthorizationFor(Scope.STAFF, adminRestTemplate -> {
@@ -0,0 +1,97 @@
+package pl.touk.widerest.api;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.client.RestTemplate;
+import pl.touk.widerest.Application;
+import pl.touk.widerest.BraodleafConfiguration;
+import pl.touk.widerest.api.products.ProductBatchResultDto;
+import pl.touk.widerest.api.products.ProductDto;
+import pl.touk.widerest.base.ApiTestUrls;
+import pl.touk.widerest.base.AuthorizationServerClient;
+import pl.touk.widerest.base.DtoTestFactory;
+import pl.touk.widerest.security.oauth2.Scope;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Products per second added through POST /products (one request and transaction per product)
+ * versus POST /products/batch. Boots the whole application on a random port, run with {@code main}.
+ */
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ProductBatchBenchmark {
+
+    private static final int PRODUCTS_PER_INVOCATION = 200;
+
+    private ConfigurableApplicationContext applicationContext;
+
+    private RestTemplate backofficeRestTemplate;
+
+    private String serverPort;
+
+    private List<ProductDto> products;
+
+    @Setup(Level.Trial)
+    public void startApplication() throws Exception {
+        applicationContext = new SpringApplicationBuilder(BraodleafConfiguration.class, Application.class)
+                .properties("server.port=0")
+                .run();
+        serverPort = applicationContext.getEnvironment().getProperty("local.server.port");
+
+        final AuthorizationServerClient authorizationServerClient = applicationContext.getBean(AuthorizationServerClient.class);
+        authorizationServerClient.logIn("backoffice", "admin", "admin");
+        backofficeRestTemplate = authorizationServerClient.requestAuthorization(Scope.STAFF);
+    }
+
+    @Setup(Level.Invocation)
+    public void prepareProducts() {
+        products = IntStream.range(0, PRODUCTS_PER_INVOCATION)
+                .mapToObj(i -> DtoTestFactory.products().getTestProductWithoutDefaultCategory())
+                .collect(Collectors.toList());
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        applicationContext.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PRODUCTS_PER_INVOCATION)
+    public void singleProductRequests() {
+        products.forEach(productDto -> backofficeRestTemplate.postForLocation(ApiTestUrls.PRODUCTS_URL, productDto, serverPort));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PRODUCTS_PER_INVOCATION)
+    public ProductBatchResultDto[] batchRequest() {
+        return backofficeRestTemplate.postForObject(ApiTestUrls.PRODUCTS_URL + "/batch", products, ProductBatchResultDto[].class, serverPort);
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ProductBatchBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -1,31 +1,46 @@
 package pl.touk.widerest.api;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableMap;
 import org.apache.commons.collections4.CollectionUtils;
 import org.broadleafcommerce.common.currency.domain.BroadleafCurrency;
 import org.broadleafcommerce.common.currency.service.BroadleafCurrencyService;
 import org.broadleafcommerce.common.media.domain.Media;
 import org.broadleafcommerce.common.money.Money;
+import org.broadleafcommerce.core.catalog.domain.Product;
 import org.broadleafcommerce.core.catalog.domain.SkuMediaXref;
+import org.broadleafcommerce.core.inventory.service.type.InventoryType;
 import org.hamcrest.Matchers;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.hateoas.Link;
+import org.springframework.hateoas.Resources;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
 import pl.touk.widerest.AbstractTest;
 import pl.touk.widerest.api.categories.CategoryDto;
+import pl.touk.widerest.api.common.CatalogUtils;
 import pl.touk.widerest.api.common.MediaDto;
 import pl.touk.widerest.api.products.BundleItemDto;
+import pl.touk.widerest.api.products.ProductBatchResultDto;
 import pl.touk.widerest.api.products.ProductBundleDto;
 import pl.touk.widerest.api.products.ProductDto;
 import pl.touk.widerest.api.products.skus.SkuDto;
@@ -38,11 +53,15 @@ import pl.touk.widerest.security.oauth2.Scope;
 import javax.annotation.Resource;
 import java.math.BigDecimal;
 import java.net.URI;
+import java.time.ZonedDateTime;
 import java.util.*;
+import java.util.stream.Collectors;
 
 import static junit.framework.TestCase.fail;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.*;
 import static pl.touk.widerest.base.ApiTestUrls.PRODUCT_BY_ID_URL;
@@ -54,6 +73,9 @@ public class ProductControllerTest extends AbstractTest {
     @Resource
     protected BroadleafCurrencyService currencyService;
 
+    @Resource(name = "blTransactionManager")
+    protected PlatformTransactionManager transactionManager;
+
     @Before
     public void initProductTests() {
         cleanupProductTests();
@@ -862,6 +884,278 @@ public class ProductControllerTest extends AbstractTest {
         });
     }
 
+    @Test
+    public void productsCountMatchesInMemoryVisibilityRulesTest() {
+
+        // given: an active product and a product which becomes active in the future
+        catalogOperationsRemote.addProduct(DtoTestFactory.products().getTestProductWithoutDefaultCategory());
+
+        final ProductDto futureProductDto = DtoTestFactory.products().getTestProductWithoutDefaultCategory();
+        futureProductDto.setValidFrom(ZonedDateTime.now().plusDays(7));
+        catalogOperationsRemote.addProduct(futureProductDto);
+
+        // then: anonymous users see only active products
+        final Long anonymousCount = new RestTemplate().getForObject(ApiTestUrls.PRODUCTS_COUNT_URL, Long.class, serverPort);
+        assertThat(anonymousCount, equalTo(catalogOperationsLocal.getTotalProductsCount()));
+
+        // then: staff sees every product which is not archived
+        final Long backofficeCount = backofficeRestTemplate.getForObject(ApiTestUrls.PRODUCTS_COUNT_URL, Long.class, serverPort);
+        assertThat(backofficeCount, equalTo(catalogService.findAllProducts().stream().filter(CatalogUtils.isNotArchived()).count()));
+        assertThat(backofficeCount, equalTo(anonymousCount + 1));
+    }
+
+
+    @Test
+    public void crawlingProductsWithCursorVisitsEveryVisibleProductOnceTest() {
+
+        // given: a few more products than fit on a single page
+        for (int i = 0; i < 5; i++) {
+            catalogOperationsRemote.addProduct(DtoTestFactory.products().getTestProductWithoutDefaultCategory());
+        }
+
+        // when: following 'next' links starting from an empty cursor
+        final List<String> visitedHrefs = new ArrayList<>();
+        URI nextUrl = UriComponentsBuilder.fromUriString(ApiTestUrls.PRODUCTS_URL)
+                .queryParam("limit", 2)
+                .queryParam("after", "")
+                .buildAndExpand(serverPort).toUri();
+
+        while (nextUrl != null) {
+            final Resources<ProductDto> page = backofficeRestTemplate.exchange(nextUrl, HttpMethod.GET, null,
+                    new ParameterizedTypeReference<Resources<ProductDto>>() {}).getBody();
+            assertTrue(page.getContent().size() <= 2);
+            assertThat(page.getId().getHref(), containsString("link=true"));
+            page.getContent().forEach(productDto -> visitedHrefs.add(productDto.getLink("self").getHref()));
+            nextUrl = Optional.ofNullable(page.getLink(Link.REL_NEXT)).map(Link::getHref).map(URI::create).orElse(null);
+        }
+
+        // then: every visible product is returned exactly once
+        assertThat((long) visitedHrefs.size(), equalTo(backofficeRestTemplate.getForObject(ApiTestUrls.PRODUCTS_COUNT_URL, Long.class, serverPort)));
+        assertThat(new HashSet<>(visitedHrefs).size(), equalTo(visitedHrefs.size()));
+
+        // then: the offset paging still works
+        final Resources<ProductDto> firstPage = backofficeRestTemplate.exchange(ApiTestUrls.PRODUCTS_URL + "?limit=2&offset=0", HttpMethod.GET, null,
+                new ParameterizedTypeReference<Resources<ProductDto>>() {}, serverPort).getBody();
+        assertThat(firstPage.getContent().size(), equalTo(2));
+    }
+
+    @Test
+    public void malformedCursorIsRejectedTest() {
+        try {
+            new RestTemplate().getForEntity(ApiTestUrls.PRODUCTS_URL + "?after={after}", String.class, serverPort, "not-a-cursor");
+            fail();
+        } catch (HttpClientErrorException e) {
+            assertThat(e.getStatusCode(), equalTo(HttpStatus.BAD_REQUEST));
+        }
+    }
+
+    @Test
+    public void exportStreamsEveryVisibleProductAsJsonLineTest() throws Exception {
+
+        // given: some products
+        for (int i = 0; i < 3; i++) {
+            catalogOperationsRemote.addProduct(DtoTestFactory.products().getTestProductWithoutDefaultCategory());
+        }
+
+        // when: exporting the catalog
+        final ResponseEntity<String> exportResponse =
+                new RestTemplate().getForEntity(ApiTestUrls.PRODUCTS_URL + "/export", String.class, serverPort);
+
+        // then: there is one product per line, each one with a self link
+        final ObjectMapper objectMapper = new ObjectMapper();
+        final List<String> lines = Arrays.stream(exportResponse.getBody().split("\n"))
+                .filter(line -> !line.isEmpty())
+                .collect(Collectors.toList());
+
+        assertThat((long) lines.size(), equalTo(catalogOperationsLocal.getTotalProductsCount()));
+        for (String line : lines) {
+            assertNotNull(objectMapper.readTree(line).path("_links").path("self").path("href").textValue());
+        }
+    }
+
+    @Test
+    public void addingProductsInBatchReturnsPerItemResultsTest() {
+
+        // given: two valid products and one without a name
+        final long currentProductsCount = backofficeRestTemplate.getForObject(ApiTestUrls.PRODUCTS_COUNT_URL, Long.class, serverPort);
+
+        final ProductDto invalidProductDto = DtoTestFactory.products().getTestProductWithoutDefaultCategory();
+        invalidProductDto.setName(null);
+
+        final List<ProductDto> productDtos = Arrays.asList(
+                DtoTestFactory.products().getTestProductWithoutDefaultCategory(),
+                invalidProductDto,
+                DtoTestFactory.products().getTestProductWithoutDefaultCategory()
+        );
+
+        // when: adding them in a single batch
+        final ProductBatchResultDto[] results = backofficeRestTemplate.postForObject(
+                ApiTestUrls.PRODUCTS_URL + "/batch", productDtos, ProductBatchResultDto[].class, serverPort);
+
+        // then: only the valid ones are created, results keep the request order
+        assertThat(results.length, equalTo(3));
+        assertThat(results[0].getStatus(), equalTo(HttpStatus.CREATED.value()));
+        assertThat(results[1].getStatus(), equalTo(HttpStatus.BAD_REQUEST.value()));
+        assertFalse(results[1].getErrors().isEmpty());
+        assertThat(results[2].getStatus(), equalTo(HttpStatus.CREATED.value()));
+
+        assertThat(backofficeRestTemplate.getForObject(ApiTestUrls.PRODUCTS_COUNT_URL, Long.class, serverPort), equalTo(currentProductsCount + 2));
+        assertThat(backofficeRestTemplate.getForObject(results[2].getLocation(), ProductDto.class).getName(), equalTo(productDtos.get(2).getName()));
+    }
+
+    @Test
+    public void listingProductsDoesNotLoadAssociationsOnePerProductTest() {
+
+        // given: enough products to fill a bigger page
+        for (int i = 0; i < 20; i++) {
+            catalogOperationsRemote.addProduct(DtoTestFactory.products().getTestProductWithoutDefaultCategory());
+        }
+
+        // when: listing a small and a four times bigger page
+        final long smallPageStatements = countStatementsWhileListingProducts(5);
+        final long bigPageStatements = countStatementsWhileListingProducts(20);
+
+        // then: associations are fetched in batches, so 15 more products cost less than a select each
+        assertThat(bigPageStatements - smallPageStatements, lessThan(15L));
+    }
+
+    @Test
+    public void listedProductsHaveTheSameAvailabilityAsSingleProductsTest() {
+
+        // given: a sold out product and an always available one
+        final ProductDto soldOutProductDto = DtoTestFactory.products().getTestProductWithoutDefaultCategory();
+        soldOutProductDto.setAvailability(InventoryType.CHECK_QUANTITY.getType());
+        soldOutProductDto.setQuantityAvailable(0);
+
+        final ProductDto alwaysAvailableProductDto = DtoTestFactory.products().getTestProductWithoutDefaultCategory();
+        alwaysAvailableProductDto.setAvailability(InventoryType.ALWAYS_AVAILABLE.getType());
+        alwaysAvailableProductDto.setQuantityAvailable(null);
+
+        final URI soldOutProductUri = catalogOperationsRemote.addProduct(soldOutProductDto).getHeaders().getLocation();
+        final URI alwaysAvailableProductUri = catalogOperationsRemote.addProduct(alwaysAvailableProductDto).getHeaders().getLocation();
+
+        // when: reading them one by one and as a list
+        final ProductDto soldOutProduct = backofficeRestTemplate.getForObject(soldOutProductUri, ProductDto.class);
+        final ProductDto alwaysAvailableProduct = backofficeRestTemplate.getForObject(alwaysAvailableProductUri, ProductDto.class);
+
+        final Map<String, ProductDto> listedProducts = backofficeRestTemplate.exchange(ApiTestUrls.PRODUCTS_URL, HttpMethod.GET, null,
+                new ParameterizedTypeReference<Resources<ProductDto>>() {}, serverPort).getBody().getContent().stream()
+                .collect(Collectors.toMap(productDto -> productDto.getLink("self").getHref(), productDto -> productDto));
+
+        // then: inventory values are the same
+        assertFalse(soldOutProduct.getIsAvailable());
+        assertThat(soldOutProduct.getQuantityAvailable(), equalTo(0));
+        assertTrue(alwaysAvailableProduct.getIsAvailable());
+        assertThat(alwaysAvailableProduct.getQuantityAvailable(), nullValue());
+
+        for (ProductDto product : Arrays.asList(soldOutProduct, alwaysAvailableProduct)) {
+            final ProductDto listedProduct = listedProducts.get(product.getLink("self").getHref());
+            assertThat(listedProduct.getIsAvailable(), equalTo(product.getIsAvailable()));
+            assertThat(listedProduct.getQuantityAvailable(), equalTo(product.getQuantityAvailable()));
+        }
+    }
+
+    @Test
+    public void productIsNotSentAgainUntilTheCatalogChangesTest() throws Throwable {
+
+        givenAuthorizationFor(Scope.STAFF, adminRestTemplate -> {
+
+            // given: a product read once
+            final long productId = ApiTestUtils.getIdFromLocationUrl(catalogOperationsRemote
+                    .addProduct(DtoTestFactory.products().getTestProductWithoutDefaultCategory()).getHeaders().getLocation().toString());
+
+            final ResponseEntity<String> firstResponse =
+                    new RestTemplate().getForEntity(PRODUCT_BY_ID_URL, String.class, serverPort, productId);
+            final String eTag = firstResponse.getHeaders().getETag();
+            assertNotNull(eTag);
+            assertNotNull(firstResponse.getHeaders().getCacheControl());
+
+            // when: reading it again with its ETag
+            final HttpHeaders conditionalHeaders = new HttpHeaders();
+            conditionalHeaders.setIfNoneMatch(eTag);
+
+            final ResponseEntity<String> notModifiedResponse = new RestTemplate().exchange(PRODUCT_BY_ID_URL, HttpMethod.GET,
+                    new HttpEntity<>(conditionalHeaders), String.class, serverPort, productId);
+
+            // then: nothing is sent
+            assertThat(notModifiedResponse.getStatusCode(), equalTo(HttpStatus.NOT_MODIFIED));
+            assertNull(notModifiedResponse.getBody());
+
+            // when: the product gets modified
+            adminRestTemplate.put(PRODUCT_BY_ID_URL, DtoTestFactory.products().getTestProductWithoutDefaultCategory(), serverPort, productId);
+
+            final ResponseEntity<String> modifiedResponse = new RestTemplate().exchange(PRODUCT_BY_ID_URL, HttpMethod.GET,
+                    new HttpEntity<>(conditionalHeaders), String.class, serverPort, productId);
+
+            // then: the new representation comes with a new ETag
+            assertThat(modifiedResponse.getStatusCode(), equalTo(HttpStatus.OK));
+            assertThat(modifiedResponse.getHeaders().getETag(), Matchers.not(equalTo(eTag)));
+        });
+    }
+
+    @Test
+    public void productTagFollowsPersistedCatalogRevisionTest() throws Throwable {
+
+        // given: a product and its ETag
+        final long productId = ApiTestUtils.getIdFromLocationUrl(catalogOperationsRemote
+                .addProduct(DtoTestFactory.products().getTestProductWithoutDefaultCategory()).getHeaders().getLocation().toString());
+
+        final String eTag = new RestTemplate().getForEntity(PRODUCT_BY_ID_URL, String.class, serverPort, productId).getHeaders().getETag();
+
+        final HttpHeaders conditionalHeaders = new HttpHeaders();
+        conditionalHeaders.setIfNoneMatch(eTag);
+
+        // when: the catalog is changed outside of this node (the revision bumped directly in the database)
+        new TransactionTemplate(transactionManager).execute(status ->
+                em.createNativeQuery("UPDATE WD_CATALOG_REVISION SET REVISION = REVISION + 1 WHERE ID = 1").executeUpdate());
+
+        // then: the product is sent again
+        final ResponseEntity<String> response = new RestTemplate().exchange(PRODUCT_BY_ID_URL, HttpMethod.GET,
+                new HttpEntity<>(conditionalHeaders), String.class, serverPort, productId);
+        assertThat(response.getStatusCode(), equalTo(HttpStatus.OK));
+        assertThat(response.getHeaders().getETag(), Matchers.not(equalTo(eTag)));
+
+        // when: the product is changed through Broadleaf services, without going through the API
+        final HttpHeaders nextConditionalHeaders = new HttpHeaders();
+        nextConditionalHeaders.setIfNoneMatch(response.getHeaders().getETag());
+
+        new TransactionTemplate(transactionManager).execute(status -> {
+            final Product product = catalogService.findProductById(productId);
+            product.getDefaultSku().setName("Renamed without the API");
+            return catalogService.saveProduct(product);
+        });
+
+        // then: the product is sent again
+        assertThat(new RestTemplate().exchange(PRODUCT_BY_ID_URL, HttpMethod.GET,
+                new HttpEntity<>(nextConditionalHeaders), String.class, serverPort, productId).getStatusCode(), equalTo(HttpStatus.OK));
+
+        // when: reading the embedded representation
+        final ResponseEntity<String> embeddedResponse = new RestTemplate().getForEntity(
+                PRODUCT_BY_ID_URL + "?embed=true", String.class, serverPort, productId);
+
+        // then: it never gets a tag, embedded resources depend on their active dates
+        assertThat(embeddedResponse.getStatusCode(), equalTo(HttpStatus.OK));
+        assertNull(embeddedResponse.getHeaders().getETag());
+    }
+
+    private long countStatementsWhileListingProducts(final int limit) {
+        final SessionFactory sessionFactory = em.unwrap(Session.class).getSessionFactory();
+        final Statistics statistics = sessionFactory.getStatistics();
+
+        sessionFactory.getCache().evictEntityRegions();
+        sessionFactory.getCache().evictCollectionRegions();
+        sessionFactory.getCache().evictQueryRegions();
+
+        final boolean statisticsEnabled = statistics.isStatisticsEnabled();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        try {
+            new RestTemplate().getForObject(ApiTestUrls.PRODUCTS_URL + "?limit={limit}", String.class, serverPort, limit);
+            return statistics.getPrepareStatementCount();
+        } finally {
+            statistics.setStatisticsEnabled(statisticsEnabled);
+        }
+    }
 
     private ProductDto retrieveProduct(final long productId) {
         return backofficeRestTemplate.getForObject(PRODUCT_BY_ID_URL, ProductDto.class, serverPort, productId);
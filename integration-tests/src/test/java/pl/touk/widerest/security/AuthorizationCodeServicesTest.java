@@ -0,0 +1,49 @@
+package pl.touk.widerest.security;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.common.exceptions.InvalidGrantException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.code.AuthorizationCodeServices;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import pl.touk.widerest.AbstractTest;
+import pl.touk.widerest.security.oauth2.Scope;
+
+import javax.annotation.Resource;
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+public class AuthorizationCodeServicesTest extends AbstractTest {
+
+    @Resource
+    protected AuthorizationCodeServices authorizationCodeServices;
+
+    @Test
+    public void shouldRedeemCodeOnlyOnce() {
+        final String code = authorizationCodeServices.createAuthorizationCode(authentication());
+
+        assertThat(authorizationCodeServices.consumeAuthorizationCode(code).getName(), equalTo("alonzo"));
+
+        Assertions.assertThatThrownBy(() -> authorizationCodeServices.consumeAuthorizationCode(code))
+                .isInstanceOf(InvalidGrantException.class);
+    }
+
+    @Test(expected = InvalidGrantException.class)
+    public void shouldNotRedeemUnknownCode() {
+        authorizationCodeServices.consumeAuthorizationCode("unknown");
+    }
+
+    private static OAuth2Authentication authentication() {
+        final OAuth2Request request = new OAuth2Request(Collections.emptyMap(), "test", null, true,
+                Collections.singleton(Scope.CUSTOMER.toString()), null, null, null, null);
+        return new OAuth2Authentication(request, new UsernamePasswordAuthenticationToken("alonzo", null,
+                AuthorityUtils.createAuthorityList("ROLE_USER")));
+    }
+}
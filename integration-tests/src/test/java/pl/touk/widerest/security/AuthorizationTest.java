@@ -11,9 +11,14 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.web.client.HttpClientErrorException;
 import pl.touk.widerest.AbstractTest;
 import pl.touk.widerest.api.orders.OrderDto;
+import pl.touk.widerest.security.oauth2.ImplicitClientDetailsService;
 import pl.touk.widerest.security.oauth2.Scope;
+import pl.touk.widerest.security.oauth2.jwt.PrincipalCache;
+
+import javax.annotation.Resource;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static pl.touk.widerest.base.ApiTestUrls.CUSTOMERS_URL;
 import static pl.touk.widerest.base.ApiTestUrls.ORDERS_COUNT;
@@ -22,6 +27,12 @@ import static pl.touk.widerest.base.ApiTestUrls.ORDERS_COUNT;
 @Slf4j
 public class AuthorizationTest extends AbstractTest {
 
+    @Resource
+    protected PrincipalCache principalCache;
+
+    @Resource
+    protected ImplicitClientDetailsService implicitClientDetailsService;
+
     @Test
     public void shouldRequireScopeForAuthoriztion() throws Throwable {
         givenAuthorizationServerClient(authorizationServerClient -> {
@@ -109,6 +120,65 @@ public class AuthorizationTest extends AbstractTest {
         when(() -> registeredRestTemplate.postForObject(CUSTOMERS_URL + "/merge", anonymousRestTemplate.getAccessToken().getValue(), String.class, serverPort));
     }
 
+    @Test
+    public void shouldResolveTheSameCustomerOnceForRepeatedRequests() throws Throwable {
+        givenAuthorizationServerClient(authorizationServerClient -> {
+            whenAuthorizationRequestedFor(authorizationServerClient, Scope.CUSTOMER, restTemplate -> {
+                restTemplate.getForObject(ORDERS_COUNT, Long.class, serverPort);
+
+                final long hitCount = principalCache.getHitCount();
+                final long missCount = principalCache.getMissCount();
+
+                for (int i = 0; i < 3; i++) {
+                    thenOrdersCountEquals(restTemplate, 0l);
+                }
+
+                assertThat(principalCache.getHitCount() - hitCount, greaterThanOrEqualTo(3l));
+                assertThat(principalCache.getMissCount(), equalTo(missCount));
+            });
+        });
+    }
+
+    @Test
+    public void shouldPersistAnonymousCustomerOnItsFirstOrderOnly() throws Throwable {
+        final long customersCount = countCustomers();
+
+        givenAuthorizationServerClient(authorizationServerClient -> {
+            whenAuthorizationRequestedFor(authorizationServerClient, Scope.CUSTOMER, restTemplate -> {
+                thenOrdersCountEquals(restTemplate, 0l);
+                assertThat(countCustomers(), equalTo(customersCount));
+
+                whenNewOrderCreated(restTemplate, orderUrl -> {
+                    assertThat(countCustomers(), equalTo(customersCount + 1));
+                    restTemplate.getForObject(orderUrl, OrderDto.class);
+                });
+            });
+        });
+    }
+
+    private long countCustomers() {
+        return em.createQuery("select count(c) from CustomerImpl c", Long.class).getSingleResult();
+    }
+
+    @Test
+    public void shouldResolveClientDetailsOncePerClient() throws Throwable {
+        implicitClientDetailsService.invalidateAll();
+        final long missCount = implicitClientDetailsService.getMissCount();
+        final long hitCount = implicitClientDetailsService.getHitCount();
+
+        givenAuthorizationServerClient(authorizationServerClient -> {
+            whenAuthorizationRequestedFor(authorizationServerClient, Scope.CUSTOMER, restTemplate -> {
+                thenAuthorized(restTemplate);
+                assertThat(implicitClientDetailsService.getMissCount() - missCount, equalTo(1l));
+            });
+            whenAuthorizationRequestedFor(authorizationServerClient, Scope.CUSTOMER, restTemplate -> {
+                thenAuthorized(restTemplate);
+                assertThat(implicitClientDetailsService.getMissCount() - missCount, equalTo(1l));
+                assertThat(implicitClientDetailsService.getHitCount() - hitCount, greaterThanOrEqualTo(2l));
+            });
+        });
+    }
+
     @Test
     public void shouldAuthorizeAdmin() throws Throwable {
         givenAuthorizationServerClient(authorizationServerClient -> {